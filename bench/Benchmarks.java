@@ -0,0 +1,456 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Micro-benchmarks of the hot paths of the game. The project has no build tool, so instead of JMH this is a small
+ * self-contained harness: every benchmark is warmed up, then measured in several timed iterations.
+ * Besides the throughput it reports the bytes allocated per operation by the measuring thread.
+ *
+ * <p>The results are written as tab separated lines, so two versions can be compared with a diff or with the
+ * compare mode:</p>
+ * <pre>
+ * javac -d out src/*.java bench/*.java
+ * java -cp out Benchmarks [results.tsv] [benchmark name filter]
+ * java -cp out Benchmarks --compare base.tsv new.tsv
+ * </pre>
+ */
+public class Benchmarks {
+
+    /**
+     * The time spent on warming up a benchmark before measuring it. (nanoseconds)
+     */
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+
+    /**
+     * The number of measured iterations of a benchmark.
+     */
+    private static final int ITERATIONS = 5;
+
+    /**
+     * The time spent on one measured iteration. (nanoseconds)
+     */
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+
+    /**
+     * The header line of the result files.
+     */
+    private static final String HEADER = "# benchmark\tops/s\terror\talloc B/op";
+
+    /**
+     * The results of the benchmarks are added to it, so the JIT cannot eliminate them.
+     */
+    private static volatile long sink;
+
+    /**
+     * The entry point of the benchmarks.
+     *
+     * @param args Either the output file and a filter for the benchmark names (both optional),
+     *             or '--compare' with two result files.
+     * @throws IOException if the result files cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--compare")) {
+            compare(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        String filter = args.length > 1 ? args[1] : "";
+
+        Map<String, LongSupplier> benchmarks = createBenchmarks();
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        System.out.println(HEADER);
+        for (Map.Entry<String, LongSupplier> benchmark : benchmarks.entrySet()) {
+            if (!benchmark.getKey().contains(filter)) continue;
+            String line = measure(benchmark.getKey(), benchmark.getValue());
+            lines.add(line);
+            System.out.println(line);
+        }
+        if (args.length > 0) {
+            Files.write(Paths.get(args[0]), lines);
+        }
+    }
+
+    /**
+     * Create the benchmarks in the order of running them. Every benchmark is one operation which returns
+     * a value derived from its result.
+     *
+     * @return the benchmarks by their names.
+     * @throws IOException if the temporary files cannot be created.
+     */
+    private static Map<String, LongSupplier> createBenchmarks() throws IOException {
+        Map<String, LongSupplier> benchmarks = new LinkedHashMap<>();
+        GameConfig config = GameConfig.DEFAULT;
+
+        // Every cell of the battlefield as a String and as a Position
+        String[] inputs = new String[config.getCells()];
+        Position[] positions = new Position[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = Position.calculateColumnIndexFromInteger(i % config.getColumns() + 1) + (i / config.getColumns() + 1);
+            positions[i] = Position.parse(inputs[i], config);
+        }
+
+        benchmarks.put("Position.parse", new LongSupplier() {
+            private int i;
+
+            @Override
+            public long getAsLong() {
+                i = (i + 1) % inputs.length;
+                return Position.parse(inputs[i], config).getRow();
+            }
+        });
+        benchmarks.put("Position.ofCell", new LongSupplier() {
+            private int i;
+
+            @Override
+            public long getAsLong() {
+                i = (i + 1) % inputs.length;
+                return Position.ofCell(i, config).getColumn();
+            }
+        });
+
+        AI placed = new AI(config);
+        placed.placeShips(null, null);
+        benchmarks.put("Player.isPlacementAllowed", new LongSupplier() {
+            private int i;
+
+            @Override
+            public long getAsLong() {
+                i = (i + 1) % (positions.length * 2);
+                return placed.isPlacementAllowed(positions[i >> 1], i & 1, 3) ? 1 : 0;
+            }
+        });
+
+        // Fires on every cell of the battlefield, then continues on a new one.
+        benchmarks.put("Player.takeFire", new LongSupplier() {
+            private AI target = newPlacedAI(config);
+            private int i;
+
+            @Override
+            public long getAsLong() {
+                if (i == positions.length) {
+                    target = newPlacedAI(config);
+                    i = 0;
+                }
+                return target.takeFire(positions[i++]);
+            }
+        });
+
+        benchmarks.put("new AI()", () -> new AI(config).getRemainingShips());
+
+        benchmarks.put("new AI() + AI.placeShips", () -> newPlacedAI(config).getRemainingShips());
+
+        benchmarks.put("AI.askCoordinate + takeFire + registerFireResult", shots(config, AI.NORMAL));
+
+        // Bound by the sampling budget of the level or by its number of samples, whichever comes first
+        benchmarks.put("AI.askCoordinate (hard) + takeFire + registerFireResult", shots(config, AI.HARD));
+
+        // The first target of a game: a lookup in the heatmap instead of sampling
+        OpeningHeatmap heatmap = OpeningHeatmap.build(config, OpeningHeatmap.DEFAULT_SAMPLES);
+        TargetingMap empty = new TargetingMap(config.getRows(), config.getColumns(), config.getFleet());
+        SplittableRandom ties = new SplittableRandom();
+        benchmarks.put("OpeningHeatmap.chooseTarget", () -> heatmap.chooseTarget(empty, ties));
+
+        GameOfBattleships finished = new GameOfBattleships(new AI(config), new AI(config));
+        finished.simulate();
+        benchmarks.put("GameOfBattleships.displayGrids", display(finished));
+
+        Path directory = Files.createTempDirectory("battleships-bench");
+        Menu menu = new Menu(directory.resolve("save01.save"), directory.resolve("scores.txt"));
+        // Delete the files before the directory at exit
+        directory.toFile().deleteOnExit();
+        directory.resolve("save01.save").toFile().deleteOnExit();
+        directory.resolve("save01.save.journal").toFile().deleteOnExit();
+        directory.resolve("save01.save.tmp").toFile().deleteOnExit();
+        // Saving in the background, then waiting for it to be written before reading it back.
+        benchmarks.put("Menu.saveGame + readSavedGame", () -> {
+            menu.saveGame(finished.getRounds(), finished.getWinner(), finished.getLoser());
+            if (!menu.closeSavedGame()) throw new IllegalStateException("The game couldn't been saved.");
+            return menu.readSavedGame().size();
+        });
+
+        // What a turn of play() waits for on average: submitting a journal record,
+        // or a full save if the journal is full. The writing happens in the background.
+        Position target = positions[0];
+        benchmarks.put("Menu per-turn save (journal + compaction)", () -> {
+            if (menu.needsFullSave()) {
+                menu.saveGame(finished.getRounds(), finished.getWinner(), finished.getLoser());
+            } else {
+                menu.recordShot(target, 0);
+            }
+            return 1;
+        });
+
+        // A leader board with 100000 scores
+        Leaderboard leaderboard = new Leaderboard(directory.resolve("leaderboard"));
+        for (String extension : new String[] {".index", ".index.tmp", ".names", ".tail"}) {
+            directory.resolve("leaderboard" + extension).toFile().deleteOnExit();
+        }
+        Random random = new Random(0);
+        for (int i = 0; i < 100_000; i++) leaderboard.add(new Score("Player " + i % 100, random.nextInt(5000)));
+        benchmarks.put("Leaderboard.getTop(10)", () -> {
+            try {
+                return leaderboard.getTop(10).size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        benchmarks.put("Leaderboard.getRank", () -> {
+            try {
+                return leaderboard.getRank(random.nextInt(5000));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        benchmarks.put("Leaderboard.add", () -> {
+            try {
+                leaderboard.add(new Score("Player", random.nextInt(5000)));
+                return 1;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // A script which repeats a menu choice and a target forever
+        byte[] script = "3\nB5\n".getBytes();
+        Terminal batch = Terminal.batch(new InputStream() {
+            private int i;
+
+            @Override
+            public int read() {
+                byte next = script[i];
+                i = (i + 1) % script.length;
+                return next;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                for (int j = 0; j < length; j++) buffer[offset + j] = (byte) read();
+                return length;
+            }
+        }, OutputStream.nullOutputStream());
+        benchmarks.put("Terminal (batch): menu choice + target", () -> {
+            int command = batch.nextInt();
+            batch.nextLine();
+            return command + batch.nextLine().length();
+        });
+
+        // Replaying a recorded AI-vs-AI game again and again
+        Path recordPath = directory.resolve("game.record");
+        recordPath.toFile().deleteOnExit();
+        Replay replay = new Replay(recordGame(config, recordPath));
+        benchmarks.put("Replay.step", () -> {
+            if (!replay.step()) replay.seek(0);
+            return replay.getTurn();
+        });
+
+        benchmarks.put("Headless AI-vs-AI game", () -> {
+            GameOfBattleships game = new GameOfBattleships(new AI(config), new AI(config));
+            game.simulate();
+            return game.getRounds();
+        });
+
+        // The latency of the same operations on a large battlefield
+        GameConfig large = GameConfig.parse("1000x1000", "10,8x2,6x4,4x8,2x16,1x32");
+        benchmarks.put("1000x1000: new AI()", () -> new AI(large).getRemainingShips());
+        benchmarks.put("1000x1000: new AI() + AI.placeShips", () -> newPlacedAI(large).getRemainingShips());
+        benchmarks.put("1000x1000: AI.askCoordinate + takeFire + registerFireResult", shots(large, AI.NORMAL));
+        GameOfBattleships started = new GameOfBattleships(newPlacedAI(large), newPlacedAI(large));
+        benchmarks.put("1000x1000: GameOfBattleships.displayGrids", display(started));
+
+        return benchmarks;
+    }
+
+    /**
+     * Create an AI with its fleet placed.
+     *
+     * @param config The rules of the game.
+     * @return the new AI.
+     */
+    private static AI newPlacedAI(GameConfig config) {
+        AI ai = new AI(config);
+        ai.placeShips(null, null);
+        return ai;
+    }
+
+    /**
+     * Record a game between two AIs.
+     *
+     * @param config The rules of the game.
+     * @param path The file path of the record.
+     * @return the recorded game.
+     * @throws IOException if the record cannot be written or read.
+     */
+    private static GameRecord recordGame(GameConfig config, Path path) throws IOException {
+        AI[] players = {newPlacedAI(config), newPlacedAI(config)};
+        GameRecorder recorder = new GameRecorder(path);
+        recorder.start(players[0], players[1]);
+        int shooter = 0;
+        while (players[1 - shooter].getRemainingShips() > 0) {
+            Position target = players[shooter].askCoordinate(null);
+            int result = players[1 - shooter].takeFire(target);
+            players[shooter].registerFireResult(target, result);
+            recorder.append(target.getRow(), target.getColumn(), result);
+            if (result == 0) shooter = 1 - shooter;
+        }
+        recorder.close();
+        return SaveCodec.decodeRecord(Files.readAllBytes(path));
+    }
+
+    /**
+     * Create a benchmark where the AI fires on a placed fleet until it sinks all of it, then continues on a new one.
+     *
+     * @param config The rules of the game.
+     * @param level The level of the AI which fires.
+     * @return the benchmark of one shot.
+     */
+    private static LongSupplier shots(GameConfig config, int level) {
+        return new LongSupplier() {
+            private AI ai = new AI(config, level);
+            private AI target = newPlacedAI(config);
+
+            @Override
+            public long getAsLong() {
+                if (target.getRemainingShips() == 0) {
+                    ai = new AI(config, level);
+                    target = newPlacedAI(config);
+                }
+                Position position = ai.askCoordinate(null);
+                int result = target.takeFire(position);
+                ai.registerFireResult(position, result);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Create a benchmark which draws the battlefields of a game to a stream which drops everything.
+     *
+     * @param game The game to draw.
+     * @return the benchmark of one drawing.
+     */
+    private static LongSupplier display(GameOfBattleships game) {
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+        return () -> {
+            PrintStream out = System.out;
+            System.setOut(nowhere);
+            try {
+                game.displayGrids();
+            } finally {
+                System.setOut(out);
+            }
+            return game.getRounds();
+        };
+    }
+
+    /**
+     * Warm up and measure a benchmark.
+     *
+     * @param name The name of the benchmark.
+     * @param operation The operation to measure.
+     * @return the result as a line of the result file.
+     */
+    private static String measure(String name, LongSupplier operation) {
+        run(operation, WARMUP_NANOS);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        double[] throughputs = new double[ITERATIONS];
+        long operations = 0;
+        long allocated = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long count = run(operation, ITERATION_NANOS);
+            long elapsed = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            operations += count;
+            throughputs[i] = count * 1e9 / elapsed;
+        }
+
+        // The mean and the standard deviation of the iterations
+        double mean = 0;
+        for (double throughput : throughputs) mean += throughput / ITERATIONS;
+        double variance = 0;
+        for (double throughput : throughputs) variance += (throughput - mean) * (throughput - mean) / (ITERATIONS - 1);
+        return String.format(Locale.ROOT, "%s\t%.1f\t%.1f\t%.1f", name, mean, Math.sqrt(variance), (double) allocated / operations);
+    }
+
+    /**
+     * Run an operation repeatedly for the given time.
+     *
+     * @param operation The operation to run.
+     * @param nanos The time to run it. (nanoseconds)
+     * @return the number of times the operation was run.
+     */
+    private static long run(LongSupplier operation, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long count = 0;
+        long result = 0;
+        do {
+            // Check the time only after a batch of operations
+            for (int i = 0; i < 16; i++) {
+                result += operation.getAsLong();
+            }
+            count += 16;
+        } while (System.nanoTime() < end);
+        sink += result;
+        return count;
+    }
+
+    /**
+     * Print the change between two result files.
+     *
+     * @param basePath The result file of the base version.
+     * @param newPath The result file of the new version.
+     * @throws IOException if the files cannot be read.
+     */
+    private static void compare(Path basePath, Path newPath) throws IOException {
+        Map<String, double[]> base = readResults(basePath);
+        Map<String, double[]> current = readResults(newPath);
+        System.out.printf("%-50s %15s %15s %9s %12s %12s%n", "benchmark", "base ops/s", "new ops/s", "change", "base B/op", "new B/op");
+        for (Map.Entry<String, double[]> result : current.entrySet()) {
+            double[] before = base.get(result.getKey());
+            double[] after = result.getValue();
+            if (before == null) {
+                System.out.printf("%-50s %15s %15.1f %9s %12s %12.1f%n", result.getKey(), "-", after[0], "new", "-", after[2]);
+            } else {
+                System.out.printf("%-50s %15.1f %15.1f %+8.1f%% %12.1f %12.1f%n", result.getKey(), before[0], after[0],
+                        (after[0] / before[0] - 1) * 100, before[2], after[2]);
+            }
+        }
+    }
+
+    /**
+     * Read a result file.
+     *
+     * @param path The path to the file.
+     * @return the throughput, the error and the allocation of the benchmarks by their names.
+     * @throws IOException if the file cannot be read.
+     */
+    private static Map<String, double[]> readResults(Path path) throws IOException {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(path)) {
+            if (line.startsWith("#") || line.isBlank()) continue;
+            String[] columns = line.split("\t");
+            results.put(columns[0], new double[] {
+                    Double.parseDouble(columns[1]), Double.parseDouble(columns[2]), Double.parseDouble(columns[3])
+            });
+        }
+        return results;
+    }
+}
@@ -1,5 +1,5 @@
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a player of the game controlled by the computer.
@@ -7,89 +7,291 @@ import java.util.Scanner;
 public class AI extends Player {
 
     /**
-     * Used to generate random numbers.
+     * The level where the targets are chosen by the placement density of the remaining ships. (See TargetingMap)
+     * It's the fastest level.
      */
-    private final Random rn;
+    public static final int NORMAL = 0;
 
     /**
-     * The default constructor of the class.
+     * The level where the targets are chosen by sampling the layouts of the remaining ships for a short time.
+     * (See MonteCarloTargeting) The layouts follow the placement of the whole fleet, which the density of the single
+     * ships doesn't, so it sinks a fleet in fewer shots than NORMAL on average. A move samples for less than
+     * a millisecond on the classic battlefield.
      */
-    public AI() {
-        super("Computer");
-        rn = new Random();
+    public static final int HARD = 1;
+
+    /**
+     * The level where the targets are chosen by sampling more layouts of the remaining ships than on HARD,
+     * with a longer time budget, so its choices are steadier. On the classic battlefield HARD already samples
+     * almost enough layouts, so EXPERT is not measurably stronger there, only a bit slower.
+     */
+    public static final int EXPERT = 2;
+
+    /**
+     * The names of the levels.
+     */
+    private static final String[] LEVELS = {"normal", "hard", "expert"};
+
+    /**
+     * The time a move can spend on sampling on each level. (milliseconds)
+     */
+    private static final long[] SAMPLING_BUDGETS = {0, 5, 10};
+
+    /**
+     * The number of sampled layouts which is enough for a move on each level.
+     */
+    private static final int[] SAMPLES = {0, 300, 1_000};
+
+    /**
+     * Used to generate random numbers. It's split from the random of the game, so the game can be replayed
+     * from its seed. (See GameOfBattleships.getSeed())
+     */
+    private SplittableRandom rn;
+
+    /**
+     * What the AI knows about the opponent's battlefield. It is used to choose the targets.
+     */
+    private final TargetingMap targetingMap;
+
+    /**
+     * The lengths of the ships in the fleet, in the order of placement.
+     */
+    private final int[] fleet;
+
+    /**
+     * The level of the AI. (NORMAL, HARD or EXPERT)
+     */
+    private final int level;
+
+    /**
+     * Chooses the targets on the levels above NORMAL, otherwise null.
+     */
+    private final MonteCarloTargeting monteCarlo;
+
+    /**
+     * The chance of a ship on each cell of the empty battlefield, or null if it's not loaded.
+     * (See OpeningHeatmap.load())
+     */
+    private final OpeningHeatmap heatmap;
+
+    /**
+     * True until the AI fires its first shot. The heatmap doesn't know about the results of the fires, so it's
+     * used only for the first target, later the placement density or the sampling is as fast or better.
+     */
+    private boolean opening;
+
+    /**
+     * The default constructor of the class. The AI plays on the NORMAL level.
+     *
+     * @param config The rules of the game: the size of the battlefield and the ships of the fleet.
+     */
+    public AI(GameConfig config) {
+        this(config, NORMAL);
+    }
+
+    /**
+     * Create an AI which plays on the given level.
+     *
+     * @param config The rules of the game: the size of the battlefield and the ships of the fleet.
+     * @param level The level of the AI. (NORMAL, HARD or EXPERT)
+     * @throws IllegalArgumentException if the level is unknown.
+     */
+    public AI(GameConfig config, int level) throws IllegalArgumentException {
+        this(config, level, new SplittableRandom());
+    }
+
+    /**
+     * Create an AI which plays on the given level with the given random numbers. Its moves stop sampling
+     * when their time budget runs out.
+     *
+     * @param config The rules of the game: the size of the battlefield and the ships of the fleet.
+     * @param level The level of the AI. (NORMAL, HARD or EXPERT)
+     * @param random Used to generate random numbers, it's owned by the AI.
+     * @throws IllegalArgumentException if the level is unknown.
+     */
+    public AI(GameConfig config, int level, SplittableRandom random) throws IllegalArgumentException {
+        this(config, level, random, true);
+    }
+
+    /**
+     * Create an AI which plays on the given level with the given random numbers.
+     * Untimed AIs created with equally seeded randoms make the same choices (with the same opening heatmap),
+     * timed ones only as long as none of their moves runs out of its time budget.
+     *
+     * @param config The rules of the game: the size of the battlefield and the ships of the fleet.
+     * @param level The level of the AI. (NORMAL, HARD or EXPERT)
+     * @param random Used to generate random numbers, it's owned by the AI.
+     * @param timed True if the moves stop sampling when their time budget runs out. An untimed move samples
+     *              all its layouts, however long it takes, e.g. on a large battlefield.
+     * @throws IllegalArgumentException if the level is unknown.
+     */
+    public AI(GameConfig config, int level, SplittableRandom random, boolean timed) throws IllegalArgumentException {
+        super("Computer", config);
+        if (level < 0 || level >= LEVELS.length) throw new IllegalArgumentException("Unknown level: " + level);
+        rn = random;
+        fleet = config.getFleet();
+        this.level = level;
+        // The opponent has the same fleet as the AI.
+        targetingMap = new TargetingMap(config.getRows(), config.getColumns(), fleet);
+        monteCarlo = level == NORMAL ? null : new MonteCarloTargeting(config.getRows(), config.getColumns(),
+                timed ? TimeUnit.MILLISECONDS.toNanos(SAMPLING_BUDGETS[level]) : Long.MAX_VALUE, SAMPLES[level]);
+        heatmap = OpeningHeatmap.get(config);
+        opening = true;
+    }
+
+    /**
+     * Return the level with the given name.
+     *
+     * @param name The name of the level: 'normal', 'hard' or 'expert'.
+     * @return the level.
+     * @throws IllegalArgumentException if there is no level with the name.
+     */
+    public static int parseLevel(String name) throws IllegalArgumentException {
+        for (int level = 0; level < LEVELS.length; level++) {
+            if (LEVELS[level].equalsIgnoreCase(name)) return level;
+        }
+        throw new IllegalArgumentException("Unknown level: " + name + " (normal, hard or expert)");
+    }
+
+    /**
+     * Return the name of a level.
+     *
+     * @param level The level. (NORMAL, HARD or EXPERT)
+     * @return the name of the level.
+     */
+    public static String getLevelName(int level) {
+        return LEVELS[level];
+    }
+
+    /**
+     * Return the level of the AI.
+     *
+     * @return the level. (NORMAL, HARD or EXPERT)
+     */
+    public int getLevel() {
+        return level;
     }
 
     /**
      * Place the AI's ships on its battlefield.
      *
      * @param game The current game session. It is used for displaying the updated battlefield.
-     * @param in Could be null. It's not used in this method which overrides the parent (Player) class's method.
+     * @param terminal Could be null. It's not used in this method which overrides the parent (Player) class's method.
      */
     @Override
-    public void placeShips(GameOfBattleships game, Scanner in) {
-        for (int shipLength = 4; shipLength >= 1; shipLength--) {
-            for (int pieces = 5 - shipLength; pieces >= 1; pieces--) {
-                Position position; // Where to place the top-left end of the ship.
-                int direction; // 0: horizontal, 1: vertical
-                boolean valid = false; // Indicate whether the placement is valid or not.
-                while (!valid) {
-                    position = askCoordinate(in);
-                    direction = rn.nextInt(2);
-                    // Check if the given place for the ship is allowed or not
-                    if (isPlacementAllowed(position, direction, shipLength)) {
-                        // Everything's ok, add the new ship.
-                        Ship newShip = new Ship(shipLength, position, direction);
-                        fleet.add(newShip);
-                        updateFieldsWithNewShip(newShip); // Update the AI's battlefield
-                        valid = true; // Exit the loop
-                    }
-                }
-            }
+    public void placeShips(GameOfBattleships game, Terminal terminal) {
+        // Choose every ship from its legal placements.
+        int[] placements = new int[fleet.length];
+        FleetGenerator generator = new FleetGenerator(config.getRows(), config.getColumns(), fleet);
+        if (!generator.generate(rn, placements)) {
+            throw new IllegalStateException("The fleet doesn't fit on the battlefield.");
+        }
+        for (int i = 0; i < fleet.length; i++) {
+            addShip(new Ship(fleet[i], toPosition(placements[i] >>> 1), placements[i] & 1));
         }
     }
 
     /**
-     * Generate a coordinate for the AI to fire upon.
+     * Convert the index of a cell to a position on the battlefield.
+     *
+     * @param cell The index of the cell (row * columns + column), starting from 0.
+     * @return the position of the cell.
+     */
+    private Position toPosition(int cell) {
+        return Position.ofCell(cell, config);
+    }
+
+    /**
+     * Generate a coordinate for the AI to fire upon. It is chosen from the cells which haven't been fired upon yet,
+     * where the remaining ships of the opponent are most likely to be: by the opening heatmap for the first shot,
+     * then by sampling their layouts above the NORMAL level, otherwise by their placement density.
      *
-     * @param in Could be null. It's not used in this method which overrides the parent (Player) class's method.
+     * @param terminal Could be null. It's not used in this method which overrides the parent (Player) class's method.
      * @return the new coordinate to fire upon.
      */
     @Override
-    public Position askCoordinate(Scanner in) {
-        return new Position(String.valueOf(
-                Position.calculateColumnIndexFromInteger(rn.nextInt(Menu.NUMBER_OF_COLUMNS) + 1)) +
-                (rn.nextInt(Menu.NUMBER_OF_ROWS) + 1)
-        );
+    public Position askCoordinate(Terminal terminal) {
+        int target = -1;
+        // Nothing is known before the first shot, so the heatmap of the empty battlefield is as good as sampling.
+        if (opening && heatmap != null) target = heatmap.chooseTarget(targetingMap, rn);
+        if (target == -1 && monteCarlo != null) target = monteCarlo.chooseTarget(targetingMap, rn);
+        // No layout was sampled in time, e.g. on a huge battlefield.
+        if (target == -1) target = targetingMap.chooseTarget(rn);
+        // Every cell is fired upon, there is no legal target left.
+        if (target == -1) throw new IllegalStateException("There is no target left to fire upon.");
+        return toPosition(target);
     }
 
     /**
-     * Return a row of displayable data about the AI's battlefield.
+     * Update the AI's knowledge about the opponent's battlefield with the result of its fire.
      *
-     * @param rowIndex The index of the row to get data from.
-     * @return The array of displayable data as characters.
+     * @param target The position the AI fired upon.
+     * @param result The result of the fire. 0: missed, 1: hit, 2: hit and sank.
      */
     @Override
-    public Character[] getBattlefieldData(int rowIndex) {
-        Character[] data = new Character[Menu.NUMBER_OF_COLUMNS];
+    public void registerFireResult(Position target, int result) {
+        targetingMap.registerResult(target.getRow() - 1, target.getColumn() - 1, result);
+        opening = false;
+    }
+
+    /**
+     * Rebuild the AI's knowledge about the opponent's battlefield from the cells which were fired upon,
+     * as if the results of the fires were registered again. Used while restoring a saved game.
+     *
+     * @param opponent The player whose battlefield the AI fires upon.
+     */
+    void restoreTargeting(Player opponent) {
+        Battlefield target = opponent.battlefield;
+        // A restored game is past its opening.
+        opening = false;
+        for (int row = 0; row < target.getRows(); row++) {
+            for (int column = 0; column < target.getColumns(); column++) {
+                if (target.isFired(row, column)) {
+                    targetingMap.registerResult(row, column, target.hasShip(row, column) ? 1 : 0);
+                }
+            }
+        }
+        // A sank ship is registered after all of its cells are registered as hits.
+        for (Ship ship : opponent.fleet) {
+            int row = ship.getPosition().getRow() - 1;
+            int column = ship.getPosition().getColumn() - 1;
+            if (target.isSank(row, column)) targetingMap.registerResult(row, column, 2);
+        }
+    }
 
-        Field[] row = battlefield[rowIndex];
-        for (int i = 0, columnLength = row.length; i < columnLength; i++) {
-            Field field = row[i];
+    /**
+     * Replace the random numbers of the AI. Used while restoring a saved game, whose random numbers are not saved,
+     * so the rest of the game can be replayed from the seed of the restored game.
+     *
+     * @param random Used to generate random numbers, it's owned by the AI.
+     */
+    void restoreRandom(SplittableRandom random) {
+        rn = random;
+    }
 
-            // Fill up the data array based on the fields' status
+    /**
+     * Fill the given buffer with a row of displayable data about the AI's battlefield.
+     * The ships which were not hit are hidden from the opponent.
+     *
+     * @param rowIndex The index of the row to get data from.
+     * @param data The buffer of the displayable data of the row's cells. Its length is at least the number of columns.
+     */
+    @Override
+    public void getBattlefieldData(int rowIndex, char[] data) {
+        for (int i = 0; i < config.getColumns(); i++) {
+            // Fill up the data array based on the cells' status
             char c;
-            if (field.hasShip()) {
-                if (field.isSank()) c = Menu.SANK_SHIP;
-                else if (field.isFired()) c = Menu.HIT;
+            if (battlefield.hasShip(rowIndex, i)) {
+                if (battlefield.isSank(rowIndex, i)) c = Menu.SANK_SHIP;
+                else if (battlefield.isFired(rowIndex, i)) c = Menu.HIT;
                 // TODO make the user decide to display the ships or not
                 else c = ' ';
             } else {
-                if (field.isFired()) c = Menu.MISSED_SHOT;
+                if (battlefield.isFired(rowIndex, i)) c = Menu.MISSED_SHOT;
                 else c = ' ';
             }
 
             data[i] = c;
         }
-        return data;
     }
 }
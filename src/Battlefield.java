@@ -0,0 +1,213 @@
+/**
+ * Represents the grid of a player's battlefield as bit-packed layers.
+ * Every cell has one bit in each layer, indexed row by row (row * columns + column).
+ * The rows and columns used by the methods of this class start from 0.
+ */
+public class Battlefield {
+
+    /**
+     * The number of rows of the battlefield.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the battlefield.
+     */
+    private final int columns;
+
+    /**
+     * The cells which have a ship, or part of a ship on them.
+     */
+    private final long[] ships;
+
+    /**
+     * The cells which were previously fired upon.
+     */
+    private final long[] fired;
+
+    /**
+     * The cells which have a sunk ship, or part of a sunk ship on them.
+     */
+    private final long[] sunk;
+
+    /**
+     * The index of the ship on each cell in the fleet of the player plus one, or 0 if the cell is empty.
+     * It's a single array, so a hit ship is found in constant time without a graph of objects per cell.
+     */
+    private final int[] shipIndexes;
+
+    /**
+     * The default constructor of the class. Create an empty battlefield without any ships on it.
+     *
+     * @param rows The number of rows of the battlefield.
+     * @param columns The number of columns of the battlefield.
+     */
+    public Battlefield(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        int words = BitSets.words(rows * columns);
+        ships = new long[words];
+        fired = new long[words];
+        sunk = new long[words];
+        shipIndexes = new int[rows * columns];
+    }
+
+    /**
+     * Return the number of rows of the battlefield.
+     *
+     * @return the number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Return the number of columns of the battlefield.
+     *
+     * @return the number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Checks if a ship fits at the given place without sticking out from the battlefield
+     * and without colliding or touching any other ship.
+     *
+     * @param row The row of the top-left end of the ship.
+     * @param column The column of the top-left end of the ship.
+     * @param direction The direction of the ship. 0: horizontal, 1: vertical.
+     * @param length The length of the ship.
+     * @return true if the ship is allowed to place at the given place.
+     */
+    public boolean isPlacementFree(int row, int column, int direction, int length) {
+        if (row < 0 || column < 0 || length < 1) return false;
+        // The last row and column (exclusive) the ship occupies
+        int endRow;
+        int endColumn;
+        if (direction == 0) {
+            endRow = row + 1;
+            endColumn = column + length;
+        } else if (direction == 1) {
+            endRow = row + length;
+            endColumn = column + 1;
+        } else {
+            return false;
+        }
+        // If the ship's stick out from the grid, return false
+        if (endRow > rows || endColumn > columns) return false;
+
+        // Check the ship's cells and the ones around it, but remain inside the grid.
+        int fromColumn = Math.max(column - 1, 0);
+        int toColumn = Math.min(endColumn + 1, columns);
+        for (int r = Math.max(row - 1, 0), lastRow = Math.min(endRow + 1, rows); r < lastRow; r++) {
+            if (BitSets.anyInRange(ships, r * columns + fromColumn, r * columns + toColumn)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Places a ship on the battlefield.
+     *
+     * @param row The row of the top-left end of the ship.
+     * @param column The column of the top-left end of the ship.
+     * @param direction The direction of the ship. 0: horizontal, 1: vertical.
+     * @param length The length of the ship.
+     * @param shipIndex The index of the ship in the fleet of the player.
+     */
+    public void placeShip(int row, int column, int direction, int length, int shipIndex) {
+        setCells(ships, row, column, direction, length);
+        int start = row * columns + column;
+        int step = direction == 0 ? 1 : columns;
+        for (int index = start, end = start + length * step; index < end; index += step) {
+            shipIndexes[index] = shipIndex + 1;
+        }
+    }
+
+    /**
+     * Registers that the other player fired on the given cell.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     */
+    public void fire(int row, int column) {
+        int index = row * columns + column;
+        BitSets.set(fired, index);
+    }
+
+    /**
+     * Registers that the ship at the given place has sunk. Every cell of it was fired upon already.
+     *
+     * @param row The row of the top-left end of the ship.
+     * @param column The column of the top-left end of the ship.
+     * @param direction The direction of the ship. 0: horizontal, 1: vertical.
+     * @param length The length of the ship.
+     */
+    public void sinkShip(int row, int column, int direction, int length) {
+        setCells(sunk, row, column, direction, length);
+    }
+
+    /**
+     * Return if the cell has a ship or part of a ship on it or not.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return true if the cell has a ship or part of a ship on it.
+     */
+    public boolean hasShip(int row, int column) {
+        return BitSets.get(ships, row * columns + column);
+    }
+
+    /**
+     * Return if the cell has been previously fired upon or not.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return true if the cell has been previously fired upon.
+     */
+    public boolean isFired(int row, int column) {
+        return BitSets.get(fired, row * columns + column);
+    }
+
+    /**
+     * Return if the cell has a sunk ship on it or not.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return true if the cell has a sunk ship on it.
+     */
+    public boolean isSank(int row, int column) {
+        return BitSets.get(sunk, row * columns + column);
+    }
+
+    /**
+     * Return the index of the ship on the cell in the fleet of the player.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return the index of the ship on the cell, or -1 if the cell is empty.
+     */
+    public int getShipIndex(int row, int column) {
+        return shipIndexes[row * columns + column] - 1;
+    }
+
+    /**
+     * Set the bits of the cells a ship occupies in the given layer.
+     *
+     * @param layer The layer to update.
+     * @param row The row of the top-left end of the ship.
+     * @param column The column of the top-left end of the ship.
+     * @param direction The direction of the ship. 0: horizontal, 1: vertical.
+     * @param length The length of the ship.
+     */
+    private void setCells(long[] layer, int row, int column, int direction, int length) {
+        int start = row * columns + column;
+        if (direction == 0) {
+            BitSets.setRange(layer, start, start + length);
+        } else if (direction == 1) {
+            for (int index = start, end = start + length * columns; index < end; index += columns) {
+                BitSets.set(layer, index);
+            }
+        }
+    }
+}
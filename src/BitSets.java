@@ -0,0 +1,136 @@
+/**
+ * Helper methods for bitsets stored in long arrays, where bit i is bit (i % 64) of the element i / 64.
+ */
+public final class BitSets {
+
+    /**
+     * The class only has static methods, it cannot be instantiated.
+     */
+    private BitSets() {
+    }
+
+    /**
+     * Return the number of long elements needed for the given number of bits.
+     *
+     * @param bits The number of bits.
+     * @return the number of elements.
+     */
+    public static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Return if the given bit is set.
+     *
+     * @param bitSet The bitset to check.
+     * @param index The index of the bit.
+     * @return true if the bit is set.
+     */
+    public static boolean get(long[] bitSet, int index) {
+        return (bitSet[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Set the given bit.
+     *
+     * @param bitSet The bitset to update.
+     * @param index The index of the bit.
+     */
+    public static void set(long[] bitSet, int index) {
+        bitSet[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Clear the given bit.
+     *
+     * @param bitSet The bitset to update.
+     * @param index The index of the bit.
+     */
+    public static void clear(long[] bitSet, int index) {
+        bitSet[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Return if any of the bits are set in the given range.
+     *
+     * @param bitSet The bitset to check.
+     * @param from The index of the first bit (inclusive).
+     * @param to The index of the last bit (exclusive).
+     * @return true if at least one bit is set in the range.
+     */
+    public static boolean anyInRange(long[] bitSet, int from, int to) {
+        if (from >= to) return false;
+        int fromWord = from >>> 6;
+        int toWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (fromWord == toWord) return (bitSet[fromWord] & firstMask & lastMask) != 0;
+        if ((bitSet[fromWord] & firstMask) != 0) return true;
+        for (int word = fromWord + 1; word < toWord; word++) {
+            if (bitSet[word] != 0) return true;
+        }
+        return (bitSet[toWord] & lastMask) != 0;
+    }
+
+    /**
+     * Set all the bits in the given range.
+     *
+     * @param bitSet The bitset to update.
+     * @param from The index of the first bit (inclusive).
+     * @param to The index of the last bit (exclusive).
+     */
+    public static void setRange(long[] bitSet, int from, int to) {
+        if (from >= to) return;
+        int fromWord = from >>> 6;
+        int toWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (fromWord == toWord) {
+            bitSet[fromWord] |= firstMask & lastMask;
+            return;
+        }
+        bitSet[fromWord] |= firstMask;
+        for (int word = fromWord + 1; word < toWord; word++) {
+            bitSet[word] = -1L;
+        }
+        bitSet[toWord] |= lastMask;
+    }
+
+    /**
+     * Return the element of the bitset shifted down by the given number of bits, so bit i of the result
+     * is bit (word * 64 + i + shift) of the bitset. The bits after the end of the bitset are 0.
+     *
+     * @param bitSet The bitset to read.
+     * @param word The index of the element to return.
+     * @param shift The number of bits to shift, at least 0.
+     * @return the shifted element.
+     */
+    public static long shiftedWord(long[] bitSet, int word, int shift) {
+        int source = word + (shift >>> 6);
+        int offset = shift & 63;
+        long low = source < bitSet.length ? bitSet[source] : 0;
+        if (offset == 0) return low;
+        long high = source + 1 < bitSet.length ? bitSet[source + 1] : 0;
+        return (low >>> offset) | (high << (64 - offset));
+    }
+
+    /**
+     * Return the index of the n-th set bit of the bitset.
+     *
+     * @param bitSet The bitset to search in.
+     * @param n The number of set bits to skip, starting from 0.
+     * @return the index of the bit, or -1 if there are not enough set bits.
+     */
+    public static int select(long[] bitSet, int n) {
+        for (int word = 0; word < bitSet.length; word++) {
+            int count = Long.bitCount(bitSet[word]);
+            if (n < count) {
+                long bits = bitSet[word];
+                for (int i = 0; i < n; i++) bits &= bits - 1;
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            n -= count;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * The cells of a battlefield grouped by a small non-negative value which only decreases, e.g. the placement density
+ * of the cells. The cells are kept in an array ordered by their values, so every bucket of the cells with the same
+ * value is a continuous range of the array. Moving a cell to the bucket below it, drawing a cell of a bucket and
+ * finding the highest non-empty bucket all take constant time. (The last one amortized, because the values never
+ * increase, so the highest bucket only moves down.)
+ * The cells are indexed row by row (row * columns + column), starting from 0.
+ */
+public class CellBuckets {
+
+    /**
+     * The cells ordered by their values, from the lowest.
+     */
+    private final int[] cells;
+
+    /**
+     * The index of each cell in the cells array.
+     */
+    private final int[] slots;
+
+    /**
+     * The value of each cell.
+     */
+    private final int[] values;
+
+    /**
+     * The index of the first cell of each bucket in the cells array. The last element is the number of cells.
+     */
+    private final int[] starts;
+
+    /**
+     * The highest value whose bucket can have cells.
+     */
+    private int top;
+
+    /**
+     * The default constructor of the class. The cells are sorted by their values with a counting sort.
+     *
+     * @param values The value of each cell. The array is owned by the buckets from now on.
+     */
+    public CellBuckets(int[] values) {
+        this.values = values;
+        int maxValue = 0;
+        for (int value : values) maxValue = Math.max(maxValue, value);
+        starts = new int[maxValue + 2];
+        for (int value : values) starts[value + 1]++;
+        for (int value = 0; value <= maxValue; value++) starts[value + 1] += starts[value];
+        cells = new int[values.length];
+        slots = new int[values.length];
+        // The next free index of each bucket, which is the start of the next bucket when it's full.
+        int[] next = starts.clone();
+        for (int cell = 0; cell < values.length; cell++) {
+            int slot = next[values[cell]]++;
+            cells[slot] = cell;
+            slots[cell] = slot;
+        }
+        top = maxValue;
+    }
+
+    /**
+     * Decrease the value of a cell by one. The cell becomes the last one of the bucket below.
+     *
+     * @param cell The index of the cell. Its value is positive.
+     */
+    public void decrement(int cell) {
+        int value = values[cell];
+        // Swap the cell with the first one of its bucket, then move the start of the bucket after it.
+        int first = starts[value];
+        int other = cells[first];
+        int slot = slots[cell];
+        cells[slot] = other;
+        slots[other] = slot;
+        cells[first] = cell;
+        slots[cell] = first;
+        starts[value]++;
+        values[cell] = value - 1;
+    }
+
+    /**
+     * Decrease the value of a cell to the given value. It takes as many steps as the difference of the values.
+     *
+     * @param cell The index of the cell.
+     * @param value The new value. Nothing happens if the cell's value is not larger.
+     */
+    public void decreaseTo(int cell, int value) {
+        while (values[cell] > value) decrement(cell);
+    }
+
+    /**
+     * Return the highest value which has cells, but at least the given one.
+     *
+     * @param min The lowest value to return.
+     * @return the highest value with cells, or -1 if no bucket has cells from min.
+     */
+    public int getTop(int min) {
+        while (top >= min && size(top) == 0) top--;
+        return top >= min ? top : -1;
+    }
+
+    /**
+     * Return the number of cells with the given value.
+     *
+     * @param value The value.
+     * @return the number of cells in the bucket.
+     */
+    public int size(int value) {
+        return value + 1 < starts.length ? starts[value + 1] - starts[value] : 0;
+    }
+
+    /**
+     * Return a cell with the given value. The order of the cells in a bucket changes when the cells are moved.
+     *
+     * @param value The value.
+     * @param index The index in the bucket between 0 and size(value) - 1.
+     * @return the cell.
+     */
+    public int get(int value, int index) {
+        return cells[starts[value] + index];
+    }
+}
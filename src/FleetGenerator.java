@@ -0,0 +1,337 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates random fleet layouts which follow the placement rules of the game.
+ * Every ship is chosen uniformly from all of its legal placements, which are computed with bitset operations,
+ * so placing a ship never has to be retried. Only if a ship doesn't fit anywhere at all is the whole fleet restarted.
+ * The cells are indexed row by row (row * columns + column), starting from 0.
+ * An instance is not thread-safe, it reuses its buffers between the generations.
+ */
+public class FleetGenerator {
+
+    /**
+     * The maximum number of times the whole fleet is restarted before the generation fails.
+     */
+    private static final int MAX_ATTEMPTS = 1000;
+
+    /**
+     * The number of rows of the battlefield.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the battlefield.
+     */
+    private final int columns;
+
+    /**
+     * The lengths of the ships to place, in the order of placement.
+     */
+    private final int[] fleet;
+
+    /**
+     * The cells where horizontal ships can start without sticking out from the battlefield.
+     * The index is the length of the ship, the element is null if there is no ship with that length.
+     */
+    private final long[][] horizontalStarts;
+
+    /**
+     * The cells where vertical ships can start without sticking out from the battlefield.
+     * The index is the length of the ship, the element is null if there is no ship with that length.
+     */
+    private final long[][] verticalStarts;
+
+    /**
+     * The cells which have a ship or are next to a ship, so no other ship can be placed on them.
+     */
+    private final long[] blocked;
+
+    /**
+     * The cells where the current ship can start horizontally.
+     */
+    private final long[] horizontalCandidates;
+
+    /**
+     * The cells where the current ship can start vertically.
+     */
+    private final long[] verticalCandidates;
+
+    /**
+     * The hits which are not yet covered by a ship of the current layout. (See generate() with the hits)
+     */
+    private final long[] uncovered;
+
+    /**
+     * True for the ships of the fleet which are placed in the current layout.
+     */
+    private final boolean[] placed;
+
+    /**
+     * The natural logarithm of the chance that the last layout was generated. (See getLogChance())
+     */
+    private double logChance;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param rows The number of rows of the battlefield.
+     * @param columns The number of columns of the battlefield.
+     * @param fleet The lengths of the ships to place, in the order of placement. Placing the longest ships
+     *              first makes it less likely that the fleet has to be restarted.
+     */
+    public FleetGenerator(int rows, int columns, int[] fleet) {
+        this.rows = rows;
+        this.columns = columns;
+        this.fleet = fleet.clone();
+        int words = BitSets.words(rows * columns);
+        blocked = new long[words];
+        horizontalCandidates = new long[words];
+        verticalCandidates = new long[words];
+        uncovered = new long[words];
+        placed = new boolean[fleet.length];
+
+        int maxLength = 0;
+        for (int length : fleet) maxLength = Math.max(maxLength, length);
+        horizontalStarts = new long[maxLength + 1][];
+        verticalStarts = new long[maxLength + 1][];
+        for (int length : fleet) {
+            if (horizontalStarts[length] != null) continue;
+            horizontalStarts[length] = new long[words];
+            verticalStarts[length] = new long[words];
+            for (int row = 0; row < rows; row++) {
+                // The columns from where a horizontal ship remains inside the grid
+                if (length <= columns) BitSets.setRange(horizontalStarts[length], row * columns, row * columns + columns - length + 1);
+                // The rows from where a vertical ship remains inside the grid
+                if (row + length <= rows) BitSets.setRange(verticalStarts[length], row * columns, row * columns + columns);
+            }
+        }
+    }
+
+    /**
+     * Generate a random fleet layout.
+     *
+     * @param random Used for choosing the placements.
+     * @param placements Filled with the placements of the ships in the order of the fleet.
+     *                   A placement is the index of the top-left cell of the ship multiplied by 2,
+     *                   plus the direction of the ship (0: horizontal, 1: vertical).
+     * @return true if the fleet was placed, false if it doesn't fit on the battlefield.
+     */
+    public boolean generate(SplittableRandom random, int[] placements) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            logChance = 0;
+            Arrays.fill(blocked, 0);
+            boolean placed = true;
+            for (int i = 0; i < fleet.length && placed; i++) {
+                int placement = choosePlacement(random, fleet[i]);
+                if (placement == -1) {
+                    // The ship doesn't fit anywhere, restart the whole fleet.
+                    placed = false;
+                } else {
+                    placements[i] = placement;
+                    block(placement >>> 1, placement & 1, fleet[i]);
+                }
+            }
+            if (placed) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Generate a random fleet layout which is consistent with what is known about a battlefield: no ship is on
+     * the obstacles, and every hit is covered by a ship. A ship cannot be on hits only, because it would have sunk.
+     * The hits are covered first, each by a random placement through it, then the rest of the fleet is placed
+     * as in generate() without the knowledge.
+     *
+     * @param random Used for choosing the placements.
+     * @param placements Filled with the placements of the ships in the order of the fleet. (See generate())
+     * @param obstacles The cells which cannot have a ship on them, e.g. the missed shots, as a bitset.
+     * @param hits The cells which have a ship on them, as a bitset. Ships can be next to the obstacles,
+     *             so the cells around the sunk ships have to be among the obstacles.
+     * @return true if the fleet was placed, false if no consistent layout was found.
+     */
+    public boolean generate(SplittableRandom random, int[] placements, long[] obstacles, long[] hits) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            logChance = 0;
+            System.arraycopy(obstacles, 0, blocked, 0, blocked.length);
+            System.arraycopy(hits, 0, uncovered, 0, uncovered.length);
+            Arrays.fill(placed, false);
+            boolean valid = true;
+            for (int hit = BitSets.select(uncovered, 0); hit != -1 && valid; hit = BitSets.select(uncovered, 0)) {
+                int ship = chooseCovering(random, hit, hits, placements);
+                if (ship == -1) {
+                    // A ship of the layout is next to the hit, or no remaining ship fits on it.
+                    valid = false;
+                } else {
+                    placed[ship] = true;
+                    int placement = placements[ship];
+                    int step = (placement & 1) == 0 ? 1 : columns;
+                    for (int i = 0, cell = placement >>> 1; i < fleet[ship]; i++, cell += step) {
+                        BitSets.clear(uncovered, cell);
+                    }
+                    block(placement >>> 1, placement & 1, fleet[ship]);
+                }
+            }
+            for (int i = 0; i < fleet.length && valid; i++) {
+                if (placed[i]) continue;
+                int placement = choosePlacement(random, fleet[i]);
+                if (placement == -1) {
+                    valid = false;
+                } else {
+                    placements[i] = placement;
+                    block(placement >>> 1, placement & 1, fleet[i]);
+                }
+            }
+            if (valid) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return the natural logarithm of the chance that the last generated layout was chosen: the sum of the logarithms
+     * of the chances of its choices. The restarts are left out, they change the chance of every layout in the same
+     * proportion.
+     *
+     * @return the logarithm of the chance of the last layout.
+     */
+    public double getLogChance() {
+        return logChance;
+    }
+
+    /**
+     * Compute the natural logarithm of the chance that generate() without the knowledge chooses the given layout,
+     * apart from the restarts. The ships are placed one at a time, each uniformly from its own legal placements,
+     * so the layouts don't have the same chance: a layout is less likely if its ships have more placements
+     * when they are placed.
+     *
+     * @param placements The placements of the ships in the order of the fleet. (See generate())
+     *                   The ships follow the placement rules.
+     * @return the logarithm of the chance of the layout.
+     */
+    public double computeLogChance(int[] placements) {
+        Arrays.fill(blocked, 0);
+        double sum = 0;
+        for (int i = 0; i < fleet.length; i++) {
+            int length = fleet[i];
+            int horizontal = findCandidates(horizontalStarts[length], 1, length, horizontalCandidates);
+            int vertical = length == 1 ? 0 : findCandidates(verticalStarts[length], columns, length, verticalCandidates);
+            sum -= Math.log(horizontal + vertical);
+            block(placements[i] >>> 1, placements[i] & 1, length);
+        }
+        return sum;
+    }
+
+    /**
+     * Choose a random ship which is not placed yet and a random legal placement for it through a hit.
+     * Every ship has the same chance with each of its placements.
+     *
+     * @param random Used for choosing the ship and the placement.
+     * @param hit The index of the cell to cover.
+     * @param hits The cells which have a ship on them, as a bitset.
+     * @param placements Where the placement of the chosen ship is set.
+     * @return the index of the chosen ship in the fleet, or -1 if no ship can be placed through the hit.
+     */
+    private int chooseCovering(SplittableRandom random, int hit, long[] hits, int[] placements) {
+        int row = hit / columns;
+        int column = hit % columns;
+        int chosen = -1;
+        int options = 0;
+        for (int ship = 0; ship < fleet.length; ship++) {
+            if (placed[ship]) continue;
+            int length = fleet[ship];
+            // A ship with the length of 1 is the same in both directions.
+            for (int direction = 0; direction <= (length == 1 ? 0 : 1); direction++) {
+                int step = direction == 0 ? 1 : columns;
+                int line = direction == 0 ? column : row;
+                int lineLength = direction == 0 ? columns : rows;
+                for (int offset = Math.max(line + length - lineLength, 0); offset < length && offset <= line; offset++) {
+                    int start = hit - offset * step;
+                    if (isCovering(start, step, length, hits) && random.nextInt(++options) == 0) {
+                        chosen = ship;
+                        placements[ship] = (start << 1) | direction;
+                    }
+                }
+            }
+        }
+        if (chosen != -1) logChance -= Math.log(options);
+        return chosen;
+    }
+
+    /**
+     * Check if a ship can be placed on the given cells while covering hits.
+     *
+     * @param start The index of the top-left cell of the ship.
+     * @param step The difference between the indexes of two neighbouring cells of the ship.
+     * @param length The length of the ship.
+     * @param hits The cells which have a ship on them, as a bitset.
+     * @return true if none of the cells are blocked and not all of them are hits.
+     */
+    private boolean isCovering(int start, int step, int length, long[] hits) {
+        boolean unknown = false;
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            if (BitSets.get(blocked, cell)) return false;
+            if (!BitSets.get(hits, cell)) unknown = true;
+        }
+        return unknown;
+    }
+
+    /**
+     * Choose a random legal placement for a ship from all of its legal placements.
+     *
+     * @param random Used for choosing the placement.
+     * @param length The length of the ship.
+     * @return the chosen placement (see generate()), or -1 if there is no legal placement.
+     */
+    private int choosePlacement(SplittableRandom random, int length) {
+        int horizontal = findCandidates(horizontalStarts[length], 1, length, horizontalCandidates);
+        // A ship with the length of 1 is the same in both directions.
+        int vertical = length == 1 ? 0 : findCandidates(verticalStarts[length], columns, length, verticalCandidates);
+        if (horizontal + vertical == 0) return -1;
+        logChance -= Math.log(horizontal + vertical);
+        int n = random.nextInt(horizontal + vertical);
+        if (n < horizontal) return BitSets.select(horizontalCandidates, n) << 1;
+        return (BitSets.select(verticalCandidates, n - horizontal) << 1) | 1;
+    }
+
+    /**
+     * Find the cells where a ship can start in the given direction without touching the blocked cells.
+     *
+     * @param starts The cells where the ship can start without sticking out from the battlefield.
+     * @param step The difference between the indexes of two neighbouring cells of the ship.
+     * @param length The length of the ship.
+     * @param candidates Filled with the cells where the ship can start.
+     * @return the number of the cells where the ship can start.
+     */
+    private int findCandidates(long[] starts, int step, int length, long[] candidates) {
+        int count = 0;
+        for (int word = 0; word < candidates.length; word++) {
+            long candidate = starts[word] & ~blocked[word];
+            // Every cell of the ship has to be free.
+            for (int i = 1; i < length && candidate != 0; i++) {
+                candidate &= ~BitSets.shiftedWord(blocked, word, i * step);
+            }
+            candidates[word] = candidate;
+            count += Long.bitCount(candidate);
+        }
+        return count;
+    }
+
+    /**
+     * Block the cells of a placed ship and the ones around it.
+     *
+     * @param start The index of the top-left cell of the ship.
+     * @param direction The direction of the ship. 0: horizontal, 1: vertical.
+     * @param length The length of the ship.
+     */
+    private void block(int start, int direction, int length) {
+        int row = start / columns;
+        int column = start % columns;
+        int endRow = direction == 1 ? row + length : row + 1;
+        int endColumn = direction == 0 ? column + length : column + 1;
+        int fromColumn = Math.max(column - 1, 0);
+        int toColumn = Math.min(endColumn + 1, columns);
+        for (int r = Math.max(row - 1, 0), lastRow = Math.min(endRow + 1, rows); r < lastRow; r++) {
+            BitSets.setRange(blocked, r * columns + fromColumn, r * columns + toColumn);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The rules of a game which can differ between the games: the size of the battlefields and the ships of the fleets.
+ * Both players have the same battlefield and the same fleet. It's immutable.
+ */
+public final class GameConfig {
+
+    /**
+     * The maximum number of rows and columns of a battlefield. (The save journal stores them on 2 bytes.)
+     */
+    public static final int MAX_DIMENSION = 4096;
+
+    /**
+     * The maximum number of cells of a battlefield.
+     */
+    public static final int MAX_CELLS = 1 << 22;
+
+    /**
+     * The maximum length of a ship. (A ship keeps its hits in the bits of a long.)
+     */
+    public static final int MAX_SHIP_LENGTH = 64;
+
+    /**
+     * The classic game: 10 x 10 battlefields, 1 x 4 long, 2 x 3 long, 3 x 2 long and 4 x 1 long ships.
+     */
+    public static final GameConfig DEFAULT = new GameConfig(Menu.NUMBER_OF_ROWS, Menu.NUMBER_OF_COLUMNS,
+            new int[] {4, 3, 3, 2, 2, 2, 1, 1, 1, 1});
+
+    /**
+     * The number of rows of a battlefield.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of a battlefield.
+     */
+    private final int columns;
+
+    /**
+     * The lengths of the ships of a fleet, from the longest to the shortest. This is the order of placement.
+     */
+    private final int[] fleet;
+
+    /**
+     * The shared instances of the positions of the battlefield.
+     */
+    private final PositionTable positions;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param rows The number of rows of a battlefield.
+     * @param columns The number of columns of a battlefield.
+     * @param fleet The lengths of the ships of a fleet in any order.
+     * @throws IllegalArgumentException if the battlefield is too small or too large, or the fleet cannot be placed on it.
+     *                                  The fleet has to be placeable by FleetGenerator, which places the AIs' fleets.
+     */
+    public GameConfig(int rows, int columns, int[] fleet) throws IllegalArgumentException {
+        if (rows < 1 || columns < 1 || rows > MAX_DIMENSION || columns > MAX_DIMENSION || (long) rows * columns > MAX_CELLS) {
+            throw new IllegalArgumentException("The battlefield must be between 1 x 1 and " + MAX_DIMENSION + " x "
+                    + MAX_DIMENSION + ", with at most " + MAX_CELLS + " cells: " + rows + " x " + columns);
+        }
+        if (fleet.length == 0) throw new IllegalArgumentException("The fleet has no ships.");
+        this.fleet = fleet.clone();
+        Arrays.sort(this.fleet);
+        long area = 0;
+        for (int i = 0; i < this.fleet.length / 2; i++) {
+            int length = this.fleet[i];
+            this.fleet[i] = this.fleet[this.fleet.length - 1 - i];
+            this.fleet[this.fleet.length - 1 - i] = length;
+        }
+        for (int length : this.fleet) {
+            if (length < 1 || length > Math.max(rows, columns)) {
+                throw new IllegalArgumentException("A ship doesn't fit on the battlefield: " + length + " long");
+            }
+            if (length > MAX_SHIP_LENGTH) {
+                throw new IllegalArgumentException("A ship can be at most " + MAX_SHIP_LENGTH + " long: " + length + " long");
+            }
+            // A ship and the water around it, which cannot be shared with another ship
+            area += (long) (length + 1) * 2;
+        }
+        // The area only rules out the obviously too large fleets quickly, a fleet within it may still not fit.
+        // The generator is seeded, so the same rules are always accepted or rejected the same way.
+        FleetGenerator generator = new FleetGenerator(rows, columns, this.fleet);
+        if (area > (long) (rows + 1) * (columns + 1)
+                || !generator.generate(new SplittableRandom(0), new int[this.fleet.length])) {
+            throw new IllegalArgumentException("The fleet doesn't fit on the battlefield.");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        positions = PositionTable.forSize(rows, columns);
+    }
+
+    /**
+     * Create a configuration from its text representation, e.g. "20x20" and "5,4x2,3x3,2x4".
+     *
+     * @param size The size of the battlefield as rows x columns, or null for the default size.
+     * @param fleet The lengths of the ships separated by commas. Several ships with the same length can be
+     *              written as length x count. Null for the default fleet.
+     * @return the configuration.
+     * @throws IllegalArgumentException if the texts are not in the correct format, or the configuration is not valid.
+     */
+    public static GameConfig parse(String size, String fleet) throws IllegalArgumentException {
+        int rows = DEFAULT.rows;
+        int columns = DEFAULT.columns;
+        if (size != null) {
+            String[] dimensions = size.toLowerCase().split("x");
+            if (dimensions.length != 2) throw new IllegalArgumentException("The size should be like '10x10': " + size);
+            rows = parseNumber(dimensions[0]);
+            columns = parseNumber(dimensions[1]);
+        }
+        int[] lengths = DEFAULT.fleet;
+        if (fleet != null) {
+            String[] ships = fleet.toLowerCase().split(",");
+            int count = 0;
+            int[][] parsed = new int[ships.length][];
+            for (int i = 0; i < ships.length; i++) {
+                String[] parts = ships[i].split("x");
+                if (parts.length > 2) throw new IllegalArgumentException("The fleet should be like '4,3x2,2x3': " + fleet);
+                parsed[i] = new int[] {parseNumber(parts[0]), parts.length == 2 ? parseNumber(parts[1]) : 1};
+                count += parsed[i][1];
+                if (count > MAX_CELLS) throw new IllegalArgumentException("The fleet has too many ships.");
+            }
+            lengths = new int[count];
+            int index = 0;
+            for (int[] ship : parsed) {
+                Arrays.fill(lengths, index, index + ship[1], ship[0]);
+                index += ship[1];
+            }
+        }
+        return new GameConfig(rows, columns, lengths);
+    }
+
+    /**
+     * Parse a positive number of a configuration.
+     *
+     * @param text The number as text.
+     * @return the number.
+     * @throws IllegalArgumentException if the text is not a positive number.
+     */
+    private static int parseNumber(String text) throws IllegalArgumentException {
+        int number;
+        try {
+            number = Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + text);
+        }
+        if (number < 1) throw new IllegalArgumentException("Not a positive number: " + text);
+        return number;
+    }
+
+    /**
+     * Return the number of rows of a battlefield.
+     *
+     * @return the number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Return the number of columns of a battlefield.
+     *
+     * @return the number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Return the number of cells of a battlefield.
+     *
+     * @return the number of cells.
+     */
+    public int getCells() {
+        return rows * columns;
+    }
+
+    /**
+     * Return the shared instances of the positions of the battlefield.
+     *
+     * @return the table of the positions.
+     */
+    public PositionTable getPositions() {
+        return positions;
+    }
+
+    /**
+     * Return the number of ships in a fleet.
+     *
+     * @return the number of ships.
+     */
+    public int getFleetSize() {
+        return fleet.length;
+    }
+
+    /**
+     * Return the length of a ship of the fleet.
+     *
+     * @param index The index of the ship in the order of placement.
+     * @return the length of the ship.
+     */
+    public int getShipLength(int index) {
+        return fleet[index];
+    }
+
+    /**
+     * Return the lengths of the ships of a fleet.
+     *
+     * @return a copy of the lengths of the ships, from the longest to the shortest.
+     */
+    public int[] getFleet() {
+        return fleet.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GameConfig)) return false;
+        GameConfig other = (GameConfig) o;
+        return rows == other.rows && columns == other.columns && Arrays.equals(fleet, other.fleet);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + columns) + Arrays.hashCode(fleet);
+    }
+
+    /**
+     * Return the text representation of the configuration, which can be parsed again, e.g. "10x10 4,3x2,2x3,1x4".
+     *
+     * @return the configuration as text.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append(rows).append('x').append(columns).append(' ');
+        for (int i = 0; i < fleet.length; ) {
+            int count = 1;
+            while (i + count < fleet.length && fleet[i + count] == fleet[i]) count++;
+            if (i > 0) builder.append(',');
+            builder.append(fleet[i]);
+            if (count > 1) builder.append('x').append(count);
+            i += count;
+        }
+        return builder.toString();
+    }
+}
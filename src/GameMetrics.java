@@ -0,0 +1,396 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The latencies of the phases of the turns and the counters of the played games, shared by every game
+ * of the program (e.g. the sessions of the game server). They are published over JMX (see GameMetricsMXBean),
+ * and dumped periodically if the 'battleships.metrics.dump' system property is set: to a file,
+ * or to the standard error if it's '-'. The 'battleships.metrics.interval' property sets the seconds between
+ * the dumps (60 by default).
+ *
+ * <p>Only the games played by users are measured, the headless games of the computer are not.</p>
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+
+    /**
+     * The phase of waiting for the target from the user.
+     */
+    public static final int INPUT = 0;
+
+    /**
+     * The phase of the computer choosing its target.
+     */
+    public static final int AI_DECISION = 1;
+
+    /**
+     * The phase of firing on the target. (See Player.takeFire())
+     */
+    public static final int TAKE_FIRE = 2;
+
+    /**
+     * The phase of drawing the battlefields.
+     */
+    public static final int RENDER = 3;
+
+    /**
+     * The phase of saving the game after a shot, what the turn waits for: encoding and submitting it.
+     */
+    public static final int SAVE = 4;
+
+    /**
+     * Writing the save to the disk in the background.
+     */
+    public static final int SAVE_WRITE = 5;
+
+    /**
+     * The names of the phases.
+     */
+    private static final String[] PHASES = {"input", "ai-decision", "take-fire", "render", "save", "save-write"};
+
+    /**
+     * The name of the metrics in JMX.
+     */
+    private static final String OBJECT_NAME = "battleships:type=GameMetrics";
+
+    /**
+     * The seconds between the dumps if it's not set.
+     */
+    private static final long DEFAULT_DUMP_INTERVAL = 60;
+
+    /**
+     * The metrics of the program.
+     */
+    private static final GameMetrics INSTANCE = new GameMetrics();
+
+    /**
+     * The latencies of the phases.
+     */
+    private final LatencyHistogram[] latencies;
+
+    /**
+     * The number of games played.
+     */
+    private final LongAdder games;
+
+    /**
+     * The number of valid moves.
+     */
+    private final LongAdder turns;
+
+    /**
+     * The number of shots.
+     */
+    private final LongAdder shots;
+
+    /**
+     * The number of shots on cells which were already fired upon.
+     */
+    private final LongAdder retries;
+
+    /**
+     * The number of bytes written by the saves.
+     */
+    private final LongAdder saveBytes;
+
+    /**
+     * The number of failed writes of the saves.
+     */
+    private final LongAdder saveFailures;
+
+    /**
+     * True if the metrics are published.
+     */
+    private boolean published;
+
+    /**
+     * Create empty metrics.
+     */
+    private GameMetrics() {
+        latencies = new LatencyHistogram[PHASES.length];
+        for (int i = 0; i < latencies.length; i++) latencies[i] = new LatencyHistogram();
+        games = new LongAdder();
+        turns = new LongAdder();
+        shots = new LongAdder();
+        retries = new LongAdder();
+        saveBytes = new LongAdder();
+        saveFailures = new LongAdder();
+        published = false;
+    }
+
+    /**
+     * Return the metrics of the program.
+     *
+     * @return the metrics.
+     */
+    public static GameMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publish the metrics over JMX and start dumping them if it's set by the system properties.
+     * It does nothing if they are already published.
+     */
+    public synchronized void publish() {
+        if (published) return;
+        published = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.err.println("The metrics cannot be published over JMX: " + e.getMessage());
+        }
+
+        String dump = System.getProperty("battleships.metrics.dump");
+        if (dump == null) return;
+        long interval = DEFAULT_DUMP_INTERVAL;
+        try {
+            interval = Long.parseLong(System.getProperty("battleships.metrics.interval", "" + DEFAULT_DUMP_INTERVAL));
+        } catch (NumberFormatException e) {
+            System.err.println("The interval of the metrics dump is not a number, it's " + interval + " seconds.");
+        }
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(dump), interval, Math.max(1, interval), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Record the latency of a phase which started at the given time.
+     *
+     * @param phase The phase, e.g. INPUT.
+     * @param startNanos The time the phase started at. (See System.nanoTime())
+     */
+    public void record(int phase, long startNanos) {
+        latencies[phase].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Count a game which is started or loaded.
+     */
+    public void countGame() {
+        games.increment();
+    }
+
+    /**
+     * Count a shot.
+     *
+     * @param result The result of the fire. -1 if the target was already fired upon. (See Player.takeFire())
+     */
+    public void countShot(int result) {
+        shots.increment();
+        if (result < 0) retries.increment();
+        else turns.increment();
+    }
+
+    /**
+     * Count a write of a save.
+     *
+     * @param bytes The number of bytes written.
+     * @param success False if the write failed.
+     */
+    public void countSave(long bytes, boolean success) {
+        saveBytes.add(bytes);
+        if (!success) saveFailures.increment();
+    }
+
+    @Override
+    public long getGames() {
+        return games.sum();
+    }
+
+    @Override
+    public long getTurns() {
+        return turns.sum();
+    }
+
+    @Override
+    public long getShots() {
+        return shots.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getSaveBytes() {
+        return saveBytes.sum();
+    }
+
+    @Override
+    public long getSaveFailures() {
+        return saveFailures.sum();
+    }
+
+    @Override
+    public Map<String, Latency> getLatencies() {
+        Map<String, Latency> result = new LinkedHashMap<>();
+        for (int i = 0; i < PHASES.length; i++) result.put(PHASES[i], new Latency(latencies[i]));
+        return result;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%s games=%d turns=%d shots=%d retries=%d saveBytes=%d saveFailures=%d%n",
+                Instant.now(), getGames(), getTurns(), getShots(), getRetries(), getSaveBytes(), getSaveFailures()));
+        for (Map.Entry<String, Latency> entry : getLatencies().entrySet()) {
+            Latency latency = entry.getValue();
+            report.append(String.format(Locale.ROOT,
+                    "  %-12s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus%n",
+                    entry.getKey(), latency.getCount(), latency.getMean(), latency.getP50(), latency.getP90(),
+                    latency.getP99(), latency.getMax()));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram latency : latencies) latency.reset();
+        games.reset();
+        turns.reset();
+        shots.reset();
+        retries.reset();
+        saveBytes.reset();
+        saveFailures.reset();
+    }
+
+    /**
+     * Write the report of the metrics.
+     *
+     * @param target The file path to append the report to, or '-' for the standard error.
+     */
+    private void dump(String target) {
+        String report = getReport();
+        if (target.equals("-")) {
+            System.err.print(report);
+            return;
+        }
+        try {
+            Files.write(Paths.get(target), report.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException | SecurityException e) {
+            System.err.println("The metrics cannot be dumped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The statistics of the latencies of a phase at a moment. The latencies are in microseconds.
+     */
+    public static final class Latency {
+
+        /**
+         * The number of latencies.
+         */
+        private final long count;
+
+        /**
+         * The average latency.
+         */
+        private final double mean;
+
+        /**
+         * The median latency.
+         */
+        private final double p50;
+
+        /**
+         * The latency which 90% of the latencies don't exceed.
+         */
+        private final double p90;
+
+        /**
+         * The latency which 99% of the latencies don't exceed.
+         */
+        private final double p99;
+
+        /**
+         * The longest latency.
+         */
+        private final double max;
+
+        /**
+         * Take the statistics of a histogram.
+         *
+         * @param histogram The latencies in nanoseconds.
+         */
+        private Latency(LatencyHistogram histogram) {
+            count = histogram.getCount();
+            mean = histogram.getMean() / 1000;
+            p50 = histogram.getPercentile(50) / 1000.0;
+            p90 = histogram.getPercentile(90) / 1000.0;
+            p99 = histogram.getPercentile(99) / 1000.0;
+            max = histogram.getMax() / 1000.0;
+        }
+
+        /**
+         * Return the number of latencies.
+         *
+         * @return the number of latencies.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Return the average latency.
+         *
+         * @return the mean latency in microseconds.
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Return the median latency.
+         *
+         * @return the median latency in microseconds.
+         */
+        public double getP50() {
+            return p50;
+        }
+
+        /**
+         * Return the latency which 90% of the latencies don't exceed.
+         *
+         * @return the 90th percentile in microseconds.
+         */
+        public double getP90() {
+            return p90;
+        }
+
+        /**
+         * Return the latency which 99% of the latencies don't exceed.
+         *
+         * @return the 99th percentile in microseconds.
+         */
+        public double getP99() {
+            return p99;
+        }
+
+        /**
+         * Return the longest latency.
+         *
+         * @return the maximum latency in microseconds.
+         */
+        public double getMax() {
+            return max;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Map;
+
+/**
+ * The management interface of GameMetrics, published over JMX as "battleships:type=GameMetrics".
+ * The latencies are in microseconds.
+ */
+public interface GameMetricsMXBean {
+
+    /**
+     * Return the number of games played, including the loaded ones.
+     *
+     * @return the number of games.
+     */
+    long getGames();
+
+    /**
+     * Return the number of turns: the valid moves of the played games.
+     *
+     * @return the number of turns.
+     */
+    long getTurns();
+
+    /**
+     * Return the number of shots, including the ones on cells which were already fired upon.
+     *
+     * @return the number of shots.
+     */
+    long getShots();
+
+    /**
+     * Return the number of shots on cells which were already fired upon, so the player had to fire again.
+     *
+     * @return the number of retries.
+     */
+    long getRetries();
+
+    /**
+     * Return the number of bytes written by the saves: the saved games and the journals.
+     *
+     * @return the number of saved bytes.
+     */
+    long getSaveBytes();
+
+    /**
+     * Return the number of writes of the saves which failed.
+     *
+     * @return the number of save failures.
+     */
+    long getSaveFailures();
+
+    /**
+     * Return the latencies of the phases of a turn by the name of the phase.
+     *
+     * @return the statistics of the latencies of each phase.
+     */
+    Map<String, GameMetrics.Latency> getLatencies();
+
+    /**
+     * Return every metric as a text, the same as the periodic dump.
+     *
+     * @return the report of the metrics.
+     */
+    String getReport();
+
+    /**
+     * Set every metric to zero.
+     */
+    void reset();
+}
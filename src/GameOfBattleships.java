@@ -1,7 +1,6 @@
 import java.util.InputMismatchException;
 import java.util.List;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
 
 /**
  * Represents a Battleship game. Handles all the interactions between the players.
@@ -17,9 +16,9 @@ public class GameOfBattleships {
 	private final Menu menu;
 
 	/**
-	 * The input stream through the user communicates with the program.
+	 * The terminal through which the user communicates with the program, or null if the game is played by the computer.
 	 */
-	private final Scanner in;
+	private final Terminal terminal;
 
 	/**
 	 * The number of rounds the players played.
@@ -46,71 +45,150 @@ public class GameOfBattleships {
 	 */
 	private boolean end;
 
+	/**
+	 * The seed of the random numbers of the game. The game can be replayed from it (see Menu.main()): every random
+	 * choice of the game and of its computer players is made by a split of the random created from the seed.
+	 * The first shot of the computer follows the opening heatmap if it's loaded, which is the same for the same rules
+	 * and number of layouts (see OpeningHeatmap). Above the NORMAL level the moves of the computer in a game started from the menu
+	 * stop sampling when their time budget runs out, so the game is replayed the same way only if none of them did.
+	 * It's 0 if the game was created from ready players, whose random numbers are their own.
+	 */
+	private final long seed;
+
+	/**
+	 * Draws the battlefields of the players. It's created when the battlefields are displayed the first time.
+	 */
+	private GridRenderer renderer;
+
 	/**
 	 * Default constructor of the class.
 	 *
 	 * @param menu The menu of the game which handles e.g. the saving of the game state.
-	 * @param in The input stream through the user communicates with the program.
+	 * @param terminal The terminal through which the user communicates with the program.
+	 * @param config The rules of the game: the size of the battlefields and the ships of the fleets.
+	 * @param aiLevel The level of the computer. (See AI.NORMAL)
+	 * @param seed The seed of the random numbers of the game.
+	 * @param replay True if the game replays an earlier game with the same seed. The moves of the computer
+	 *               sample all their layouts then, however long it takes. (See AI)
 	 */
-	public GameOfBattleships(Menu menu, Scanner in) {
+	public GameOfBattleships(Menu menu, Terminal terminal, GameConfig config, int aiLevel, long seed, boolean replay) {
 		this.menu = menu;
-		this.in = in;
+		this.terminal = terminal;
+		this.seed = seed;
+		SplittableRandom random = new SplittableRandom(seed);
 		rounds = 1;
-		activePlayer = new AI();
+		activePlayer = new AI(config, aiLevel, random.split(), !replay);
 
 		// Ask a name from the human player.
         String name;
         while (true) {
-            System.out.println("What is your name?");
-            System.out.println(Menu.LINE_SEPARATOR);
-            name = in.nextLine();
+            terminal.println("What is your name?");
+            terminal.println(Menu.LINE_SEPARATOR);
+            name = terminal.nextLine();
             if (!name.isBlank()) break;
-            System.out.println(Menu.LINE_SEPARATOR);
+            terminal.println(Menu.LINE_SEPARATOR);
         }
-        System.out.println(Menu.LINE_SEPARATOR);
-        System.out.println("Welcome, " + name + "!");
-		passivePlayer = new Player(name);
+        terminal.println(Menu.LINE_SEPARATOR);
+        terminal.println("Welcome, " + name + "!");
+        terminal.println("The seed of this game is " + seed + ", it can be replayed with --game-seed=" + seed + ".");
+		passivePlayer = new Player(name, config);
 
         // Randomize who starts
-        if ((new Random()).nextInt(2) == 0) {
+        if (random.nextInt(2) == 0) {
             switchPlayers();
         }
         shipsPlaced = false;
 		end = false;
+		renderer = null;
 	}
 
     /**
      * Private constructor to use only for restoring a previous game.
      *
      * @param menu The menu of the game which handles e.g. the saving of the game state.
-     * @param in The input stream through the user communicates with the program.
+     * @param terminal The terminal through which the user communicates with the program.
      * @param rounds The number of rounds the players played.
      * @param activePlayer The player who is firing on the other.
      * @param passivePlayer The player who is taking the fire.
+     * @param seed The seed of the random numbers of the rest of the game.
      */
-	private GameOfBattleships(Menu menu, Scanner in, int rounds, Player activePlayer, Player passivePlayer) {
+	private GameOfBattleships(Menu menu, Terminal terminal, int rounds, Player activePlayer, Player passivePlayer,
+			long seed) {
 		this.menu = menu;
-		this.in = in;
+		this.terminal = terminal;
+		this.seed = seed;
 		this.rounds = rounds;
+		// The random numbers of the saved game are not saved, the computer continues with new ones.
+		SplittableRandom random = new SplittableRandom(seed);
+		if (activePlayer instanceof AI) ((AI) activePlayer).restoreRandom(random.split());
+		if (passivePlayer instanceof AI) ((AI) passivePlayer).restoreRandom(random.split());
 		this.activePlayer = activePlayer;
 		this.passivePlayer = passivePlayer;
 		shipsPlaced = true;
 		end = false;
+		renderer = null;
+	}
+
+    /**
+     * Create a game between two players controlled by the computer, without any user interaction.
+     * The game can be played with simulate().
+     *
+     * @param first The player who starts the game.
+     * @param second The player who is taking the first fire.
+     */
+	public GameOfBattleships(AI first, AI second) {
+		menu = null;
+		terminal = null;
+		seed = 0;
+		rounds = 1;
+		activePlayer = first;
+		passivePlayer = second;
+		shipsPlaced = false;
+		end = false;
+		renderer = null;
+	}
+
+    /**
+     * Create a game between two computer players, without any user interaction. The players and the order of them
+     * are chosen by the random numbers of the seed, and the moves of the players sample all their layouts
+     * without a time budget, so games with the same seed are played the same way. (See AI)
+     * The game can be played with simulate().
+     *
+     * @param config The rules of the game: the size of the battlefields and the ships of the fleets.
+     * @param level The level of both computer players. (See AI.NORMAL)
+     * @param seed The seed of the random numbers of the game.
+     */
+	public GameOfBattleships(GameConfig config, int level, long seed) {
+		menu = null;
+		terminal = null;
+		this.seed = seed;
+		SplittableRandom random = new SplittableRandom(seed);
+		rounds = 1;
+		activePlayer = new AI(config, level, random.split(), false);
+		passivePlayer = new AI(config, level, random.split(), false);
+		// Randomize who starts
+		if (random.nextInt(2) == 0) {
+			switchPlayers();
+		}
+		shipsPlaced = false;
+		end = false;
+		renderer = null;
 	}
 
     /**
      * Restore a previous game from the given state.
      *
      * @param menu The menu of the game which handles e.g. the saving of the game state.
-     * @param in The input stream through the user communicates with the program.
+     * @param terminal The terminal through which the user communicates with the program.
      * @param state The state of the previous game.
      *              The first element of the list is the number of rounds.
      *              The second element of the list is the player who has the turn.
      *              The third element of the list is the player who waiting for its turn.
+     * @param seed The seed of the random numbers of the rest of the game.
      * @return the restored game.
      * @throws IllegalArgumentException if the game cannot been restored from the provided state.
      */
-	public static GameOfBattleships restorePreviousGame(Menu menu, Scanner in, List<Object> state)
+	public static GameOfBattleships restorePreviousGame(Menu menu, Terminal terminal, List<Object> state, long seed)
 			throws IllegalArgumentException {
 		int rounds;
 		Player activePlayer;
@@ -122,27 +200,38 @@ public class GameOfBattleships {
 		} catch (ClassCastException e) {
 			throw new IllegalArgumentException("Error: The saved game is corrupt.");
 		}
-		return new GameOfBattleships(menu, in, rounds, activePlayer, passivePlayer);
+		return new GameOfBattleships(menu, terminal, rounds, activePlayer, passivePlayer, seed);
 	}
 
 	/**
 	 * The whole cycle of an entire game, from placing the ships to winning the game.
 	 */
 	public void play() {
+		GameMetrics metrics = GameMetrics.get();
+		metrics.countGame();
 		if (!shipsPlaced) {
 			// Placing the ships.
-			activePlayer.placeShips(this, in);
-			passivePlayer.placeShips(this, in);
+			activePlayer.placeShips(this, terminal);
+			passivePlayer.placeShips(this, terminal);
 			shipsPlaced = true;
+			// The record starts with the fleets, the active player makes the first move.
+			menu.startRecording(activePlayer, passivePlayer);
+		} else {
+			menu.resumeRecording(activePlayer, passivePlayer);
 		}
 
+		// Save the whole state of the game, after that only the shots are appended to the save.
+		// The saves are written in the background, the message tells what is already on the disk.
+		menu.saveGame(rounds, activePlayer, passivePlayer);
+
 		// Loop: Firing on each other.
 		while (!end) {
-		    // Save the current state of the game
-			if (!menu.saveGame(List.of(rounds, activePlayer, passivePlayer))) {
-			    System.out.println("The game couldn't been saved. Exiting now will cause to lose the current game.");
+			if (menu.isSaved()) {
+                terminal.println("The game is saved. You can exit to the Main Menu by typing in 'Exit'");
+			} else if (menu.isSaveFailed()) {
+			    terminal.println("The game couldn't been saved. Exiting now will cause to lose the current game.");
             } else {
-                System.out.println("The game is saved. You can exit to the Main Menu by typing in 'Exit'");
+                terminal.println("The game is being saved. You can exit to the Main Menu by typing in 'Exit'");
             }
 
 			displayGrids();
@@ -152,24 +241,48 @@ public class GameOfBattleships {
 			// Loop: get a valid target or input from the player which hasn't been fired upon.
 			while (!valid) {
 				// Try getting a valid target/input from the user (e.g. B5).
+				long start = System.nanoTime();
 				try {
-					target = activePlayer.askCoordinate(in);
+					target = activePlayer.askCoordinate(terminal);
+					metrics.record(activePlayer instanceof AI ? GameMetrics.AI_DECISION : GameMetrics.INPUT, start);
 				} catch (InputMismatchException e) {
 					// Exit the game if the user would like to.
-					if (e.getMessage().equals("Exit")) return;
+					if (e.getMessage().equals("Exit")) {
+						// Wait for the save to finish, so the game can be loaded later.
+						if (!menu.closeSavedGame()) {
+							terminal.println("The game couldn't been saved. The current game is lost.");
+						}
+						return;
+					}
 					else {
 						// Continue asking a valid input from the user
 						displayGrids();
-					    System.out.println("Not a valid target. (For exit, type in 'Exit')");
+					    terminal.println("Not a valid target. (For exit, type in 'Exit')");
                         continue;
                     }
 				}
 
-				valid = fire(target);
+				start = System.nanoTime();
+				int result = fire(target);
+				metrics.record(GameMetrics.TAKE_FIRE, start);
+				metrics.countShot(result);
+				valid = result >= 0;
+				if (valid) {
+					menu.recordMove(target, result);
+					start = System.nanoTime();
+					// Append the shot to the save, or save the whole game again if there are already many shots appended
+					// or the previous save failed.
+					if (menu.needsFullSave()) {
+						menu.saveGame(rounds, activePlayer, passivePlayer);
+					} else {
+						menu.recordShot(target, result);
+					}
+					metrics.record(GameMetrics.SAVE, start);
+				}
 				// If the player is not an AI and already fired upon the target warn them about it.
-				if (!valid && !(activePlayer instanceof AI)) {
+				else if (!(activePlayer instanceof AI)) {
 					displayGrids();
-					System.out.println("You have already fired on that target. Choose another one!");
+					terminal.println("You have already fired on that target. Choose another one!");
 				}
 			}
 		}
@@ -177,151 +290,112 @@ public class GameOfBattleships {
 	}
 
 	/**
-	 * Displays the battlefields to the user(s).
+	 * The whole cycle of an entire game between two AIs without displaying or saving anything.
+	 * After it returns, the active player is the winner of the game.
 	 */
-	public void displayGrids() {
-		displayTableHeads();
-
-	    // First line with the column indexes
-	    Character[] columnIndexes = new Character[Menu.NUMBER_OF_COLUMNS];
-	    for (int i = 0; i < Menu.NUMBER_OF_COLUMNS; i++) {
-	    	// Calculate the ascii codes of the indexes
-	    	columnIndexes[i] = (char) (i + 65);
-	    }
-	    System.out.println(
-	    		generateTableRow("", columnIndexes)
-				+ " ".repeat(Menu.GAP)
-				+ generateTableRow("", columnIndexes)
-		);
-	    // Display a border between two table rows
-		System.out.println(generateTableRowSeparator() + " ".repeat(Menu.GAP) + generateTableRowSeparator());
-
-	    // Battlefields line by line
-        for (int row = 0; row < Menu.NUMBER_OF_ROWS; row++) {
-        	System.out.println(
-        			generateTableRow(String.valueOf(row + 1), passivePlayer.getBattlefieldData(row))
-					+ " ".repeat(Menu.GAP)
-					+ generateTableRow(String.valueOf(row + 1), activePlayer.getBattlefieldData(row))
-			);
-        	// Display a border between two table rows
-			System.out.println(generateTableRowSeparator() + " ".repeat(Menu.GAP) + generateTableRowSeparator());
-        }
-        System.out.println();
+	public void simulate() {
+		if (!shipsPlaced) {
+			activePlayer.placeShips(this, null);
+			passivePlayer.placeShips(this, null);
+			shipsPlaced = true;
+		}
+
+		while (!end) {
+			// The AI chooses only from the targets which are not yet fired upon.
+			Position target = activePlayer.askCoordinate(null);
+			if (fire(target) < 0) {
+				throw new IllegalStateException("The AI fired on the same target twice: " + target);
+			}
+		}
 	}
 
 	/**
-	 * Display the head of the battleships. Contains the name of the players and their scores.
+	 * Return the player who won the game (or who has the turn if the game is not yet ended).
+	 *
+	 * @return the winner of the game.
 	 */
-	private void displayTableHeads() {
-		// Numbers which help positioning the labels above the tables to the center.
-		final int spaceTillFirstLabel = (int) Math.floor((Menu.TABLE_WIDTH - 2 - passivePlayer.getName().length()) / 2f);
-		final int firstPosition = spaceTillFirstLabel + passivePlayer.getName().length();
-		final int spaceTillSecondLabel = (int) Math.floor((Menu.TABLE_WIDTH - 2 - activePlayer.getName().length()) / 2f);
-		final int secondPosition = spaceTillSecondLabel + activePlayer.getName().length();
-
-
-		// Display the labels above the tables
-		System.out.println();
-		System.out.println(generateTableHeadsSeparator());
-		System.out.printf(
-				"|%" + firstPosition + "s" + " ".repeat(Menu.TABLE_WIDTH - firstPosition - 2) + "|" + " ".repeat(Menu.GAP) + "|%"+ secondPosition + "s" + " ".repeat(Menu.TABLE_WIDTH - secondPosition - 2) + "|\n",
-				passivePlayer.getName().toUpperCase(),
-				activePlayer.getName().toUpperCase()
-		);
-
-		System.out.println(generateTableHeadsSeparator());
-		// Display the player's current scores
-		System.out.print(generateHeaderRow(
-				" Hits: " + passivePlayer.getHits(), " Misses: " + passivePlayer.getMisses())
-				+ " ".repeat(Menu.GAP) +
-				generateHeaderRow(" Hits: " + activePlayer.getHits(), " Misses: " + activePlayer.getMisses()) + "\n"
-		);
-		System.out.println(generateTableHeadsSeparator());
-		System.out.println();
+	public Player getWinner() {
+		return activePlayer;
 	}
 
 	/**
-	 * Generate a line separator for the heads of the two tables.
+	 * Return the player who lost the game (or who is waiting for its turn if the game is not yet ended).
 	 *
-	 * @return the generated row separator as String
+	 * @return the loser of the game.
 	 */
-	private String generateTableHeadsSeparator() {
-		return String.format("|%" + (Menu.TABLE_WIDTH - 2) + "." + (Menu.TABLE_WIDTH - 2) + "s|%" + Menu.GAP + "s|%" + (Menu.TABLE_WIDTH - 2) + "." + (Menu.TABLE_WIDTH - 2) + "s|",
-				"-".repeat(Menu.TABLE_WIDTH),
-				" ".repeat(Menu.GAP),
-				"-".repeat(Menu.TABLE_WIDTH));
+	public Player getLoser() {
+		return passivePlayer;
 	}
 
 	/**
-	 * Generate a row for one table's head.
+	 * Return the number of rounds the players played.
 	 *
-	 * @param firstCell The data to display in the first cell.
-	 * @param secondCell The data to display in the second cell.
-	 * @return the generated table row.
+	 * @return the number of rounds.
 	 */
-	private String generateHeaderRow(String firstCell, String secondCell) {
-		return String.format(
-				"|%-" + (int) (Menu.TABLE_WIDTH / 2f - 2) + "s|%-" + ((int) Math.ceil(Menu.TABLE_WIDTH / 2f) - 1) + "s|",
-				firstCell,
-				secondCell
-		);
+	public int getRounds() {
+		return rounds;
 	}
 
 	/**
-	 * Generate a separator line between two rows of a battleship table
+	 * Return the seed of the random numbers of the game.
 	 *
-	 * @return the generated line as a String
+	 * @return the seed, or 0 if the game was created from ready players.
 	 */
-	private String generateTableRowSeparator() {
-		String lineSeparator = "-".repeat(Menu.COLUMN_WIDTH);
-		String[] cells = new String[Menu.NUMBER_OF_COLUMNS];
-	    for (int i = 0; i < Menu.NUMBER_OF_COLUMNS; i++) {
-	    	cells[i] = lineSeparator;
-	    }
-	    return generateTableRow(lineSeparator, cells);
+	public long getSeed() {
+		return seed;
 	}
 
 	/**
-	 * Generate a row for a table of battleship.
+	 * Return the rules of the game.
 	 *
-	 * @param rowIndex The index of the row to display at the start of the row.
-	 * @param rowData The array of data to display in the cells.
-	 * @param <T> The type of the data to display.
-	 * @return the generated row as a String
+	 * @return the rules of the game.
 	 */
-	private <T> String generateTableRow(String rowIndex, T[] rowData) {
-		StringBuilder builder = new StringBuilder();
-
-		builder.append(generateTableCell(rowIndex));
-	    for (int i = 0; i < Menu.NUMBER_OF_COLUMNS; i++) {
-	    	builder.append(generateTableCell(rowData[i]));
-	    }
-	    return builder.toString();
+	public GameConfig getConfig() {
+		return activePlayer.getConfig();
 	}
 
 	/**
-	 * Generate a cell for a table of battleship.
+	 * Fire a previously saved shot again while restoring a game.
 	 *
-	 * @param content to display in the cell.
-	 * @param <T> The type of the data to display.
-	 * @return the generated cell as a String.
+	 * @param target The target of the shot.
+	 * @param result The saved result of the shot.
+	 * @return true if the shot had the same result as when it was saved.
 	 */
-	private <T> String generateTableCell(T content) {
-		return String.format(
-				"%" + Menu.COLUMN_WIDTH + "." + Menu.COLUMN_WIDTH + "s" + Menu.COLUMN_SEPARATOR,
-				content + " ".repeat((int) Math.ceil(Menu.COLUMN_WIDTH / 2f) - 1)
-		);
+	public boolean replayShot(Position target, int result) {
+		return !end && fire(target) == result;
+	}
+
+	/**
+	 * Displays the battlefields to the user(s). A script doesn't look at them, so they are not drawn
+	 * for a batch terminal.
+	 */
+	public void displayGrids() {
+		if (terminal != null && !terminal.isInteractive()) return;
+		drawGrids();
+	}
+
+	/**
+	 * Draws the battlefields to the terminal, or to the standard output if the game is played by the computer.
+	 */
+	private void drawGrids() {
+		if (renderer == null) renderer = new GridRenderer(activePlayer.getConfig());
+		long start = System.nanoTime();
+		// The games played by the computer are drawn to the standard output.
+		renderer.render(terminal == null ? System.out : terminal.getOut(), passivePlayer, activePlayer);
+		GameMetrics.get().record(GameMetrics.RENDER, start);
 	}
 
 	/**
 	 * Fires on the passive player with the given coordinates.
 	 *
 	 * @param target to fire upon.
-	 * @return true if the fire was successful. False if there was a problem.
+	 * @return the result of the fire (see Player.takeFire()), or -1 if the fire wasn't successful.
 	 */
-	private boolean fire(Position target) {
+	private int fire(Position target) {
 		// Fire on the target provided by the player
-		switch(passivePlayer.takeFire(target)) {
+		int result = passivePlayer.takeFire(target);
+		if (result >= 0) activePlayer.registerFireResult(target, result);
+		switch(result) {
 			// Missed
 			case 0:
 				activePlayer.increaseMisses();
@@ -336,7 +410,7 @@ public class GameOfBattleships {
 			case 2:
 				activePlayer.increaseHits();
 				// If all the ships sank in the fleet, end the game.
-				if (passivePlayer.fleet.size() == 0) {
+				if (passivePlayer.getRemainingShips() == 0) {
 					end = true;
 				}
 				break;
@@ -345,9 +419,9 @@ public class GameOfBattleships {
 			case -1:
 			// Fire cannot been executed
 			default:
-				return false;
+				return -1;
 		}
-		return true; // The fire is done, return true
+		return result; // The fire is done, return its result
 	}
 
 	/**
@@ -363,21 +437,14 @@ public class GameOfBattleships {
 	 * Wrap up the game at the end. Saving the score of the winner, delete the saved game.
 	 */
 	private void endGame() {
-		// Display the final state of the game
-		displayGrids();
+		// Display the final state of the game, even to a script, so its output shows how the game ended.
+		drawGrids();
 		// Saving score for the winner.
 		int score = calculateScore();
-		System.out.printf("%s scored %d points.\n", activePlayer.getName(), score);
-		while (true) {
-			boolean success = menu.saveScore(new Score(activePlayer.getName(), score));
-			if (!success) {
-				System.out.println(Menu.LINE_SEPARATOR);
-				System.out.println("Save was unsuccessful. Would you like to try again? (y/n)");
-				String command = in.nextLine();
-				if (command.toLowerCase().equals("y")) continue;
-			}
-			break;
-		}
+		terminal.printf("%s scored %d points.\n", activePlayer.getName(), score);
+		// The menu tells the rank of the score when it's written.
+		menu.saveScore(new Score(activePlayer.getName(), score));
+		menu.finishRecording();
 		menu.deleteSavedGame();
 	}
 
@@ -386,7 +453,7 @@ public class GameOfBattleships {
 	 *
 	 * @return the calculated score.
 	 */
-	private int calculateScore() {
+	public int calculateScore() {
 		int rounds = (this.rounds % 2 == 1) ?
 				(int) Math.ceil((float) this.rounds / 2) : // The player started the game
 				this.rounds / 2; // The player was the second player
@@ -0,0 +1,141 @@
+/**
+ * A recorded game: the rules, the players with the placement of their fleets and every move of the game.
+ * It's decoded from a record file by SaveCodec.decodeRecord(), and played again by Replay.
+ * The players are numbered 0 and 1, player 0 fired first.
+ */
+public class GameRecord {
+
+    /**
+     * The rules of the game.
+     */
+    private final GameConfig config;
+
+    /**
+     * True for the players controlled by the computer.
+     */
+    private final boolean[] computers;
+
+    /**
+     * The names of the players.
+     */
+    private final String[] names;
+
+    /**
+     * The placements of the players' ships in the order of the fleet: (top-left cell * 2 + direction).
+     */
+    private final int[][] placements;
+
+    /**
+     * The size of the record before the first move. (bytes)
+     */
+    private final int headerSize;
+
+    /**
+     * The moves: (target cell * 4 + result of the fire).
+     */
+    private final int[] moves;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param config The rules of the game.
+     * @param computers True for the players controlled by the computer.
+     * @param names The names of the players.
+     * @param placements The placements of the players' ships: (top-left cell * 2 + direction).
+     * @param headerSize The size of the record before the first move. (bytes)
+     * @param moves The moves: (target cell * 4 + result of the fire).
+     */
+    public GameRecord(GameConfig config, boolean[] computers, String[] names, int[][] placements,
+                      int headerSize, int[] moves) {
+        this.config = config;
+        this.computers = computers;
+        this.names = names;
+        this.placements = placements;
+        this.headerSize = headerSize;
+        this.moves = moves;
+    }
+
+    /**
+     * Return the rules of the game.
+     *
+     * @return the rules of the game.
+     */
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Return if a player was controlled by the computer.
+     *
+     * @param player The number of the player, 0 or 1.
+     * @return true if the player was controlled by the computer.
+     */
+    public boolean isComputer(int player) {
+        return computers[player];
+    }
+
+    /**
+     * Return the name of a player.
+     *
+     * @param player The number of the player, 0 or 1.
+     * @return the name of the player.
+     */
+    public String getName(int player) {
+        return names[player];
+    }
+
+    /**
+     * Return the placement of a ship.
+     *
+     * @param player The number of the player, 0 or 1.
+     * @param ship The index of the ship in the fleet.
+     * @return the top-left cell of the ship * 2 + its direction.
+     */
+    public int getPlacement(int player, int ship) {
+        return placements[player][ship];
+    }
+
+    /**
+     * Return the number of recorded moves.
+     *
+     * @return the number of moves.
+     */
+    public int getMoves() {
+        return moves.length;
+    }
+
+    /**
+     * Return the target cell of a move.
+     *
+     * @param turn The index of the move, starting from 0.
+     * @return the index of the target cell (row * columns + column, starting from 0).
+     */
+    public int getTarget(int turn) {
+        return moves[turn] >>> 2;
+    }
+
+    /**
+     * Return the result of a move.
+     *
+     * @param turn The index of the move, starting from 0.
+     * @return the result of the fire. (See Player.takeFire())
+     */
+    public int getResult(int turn) {
+        return moves[turn] & 3;
+    }
+
+    /**
+     * Return the size of the record up to a move, e.g. to cut off the moves after it.
+     *
+     * @param turns The number of moves to keep.
+     * @return the size of the record with the given number of moves. (bytes)
+     */
+    public int getSize(int turns) {
+        int size = headerSize;
+        byte[] buffer = new byte[SaveCodec.MAX_MOVE_SIZE];
+        for (int i = 0; i < turns; i++) {
+            size += SaveCodec.encodeMove(getTarget(i), getResult(i), buffer);
+        }
+        return size;
+    }
+}
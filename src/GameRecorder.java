@@ -0,0 +1,167 @@
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records a game while it's played: the placement of the fleets, then every move one by one.
+ * The record is kept next to the saved game, so a loaded game continues its record. When the game ends,
+ * it's moved among the records of the finished games. (See SaveCodec for the format.)
+ */
+public class GameRecorder implements Closeable {
+
+    /**
+     * The file path of the record of the game in progress.
+     */
+    private final Path path;
+
+    /**
+     * Used to encode a move before writing it. It's reused between the moves.
+     */
+    private final byte[] buffer;
+
+    /**
+     * The number of columns of the recorded battlefields.
+     */
+    private int columns;
+
+    /**
+     * The stream of the record, or null if no game is recorded.
+     */
+    private FileOutputStream out;
+
+    /**
+     * The default constructor of the class. Nothing is recorded until a game is started or resumed.
+     *
+     * @param path The file path of the record of the game in progress.
+     */
+    public GameRecorder(Path path) {
+        this.path = path;
+        buffer = new byte[SaveCodec.MAX_MOVE_SIZE];
+        out = null;
+    }
+
+    /**
+     * Start the record of a new game after the ships are placed.
+     *
+     * @param first The player who fires first.
+     * @param second The player who takes the first fire.
+     * @throws IOException if the record cannot be written.
+     */
+    public void start(Player first, Player second) throws IOException {
+        close();
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) Files.createDirectories(directory);
+        columns = first.getConfig().getColumns();
+        out = new FileOutputStream(path.toFile(), false);
+        out.write(SaveCodec.encodeRecord(first, second));
+    }
+
+    /**
+     * Continue the record of a loaded game. The moves recorded after the game was saved the last time
+     * (e.g. because the program stopped before the save was written) are cut off, they are played again.
+     *
+     * @param activePlayer The player who has the turn.
+     * @param passivePlayer The player who is waiting for its turn.
+     * @return false if the game has no record (e.g. it was saved by an older version), so it's not recorded.
+     * @throws IOException if the record cannot be read or written.
+     */
+    public boolean resume(Player activePlayer, Player passivePlayer) throws IOException {
+        close();
+        GameRecord record;
+        try {
+            record = SaveCodec.decodeRecord(Files.readAllBytes(path));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        // Every valid shot is either a hit or a miss.
+        int turns = activePlayer.getHits() + activePlayer.getMisses() + passivePlayer.getHits() + passivePlayer.getMisses();
+        boolean matches = (isRecorded(record, 0, activePlayer) && isRecorded(record, 1, passivePlayer))
+                || (isRecorded(record, 0, passivePlayer) && isRecorded(record, 1, activePlayer));
+        if (!matches || record.getMoves() < turns) return false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(record.getSize(turns));
+        }
+        columns = activePlayer.getConfig().getColumns();
+        out = new FileOutputStream(path.toFile(), true);
+        return true;
+    }
+
+    /**
+     * Append a move to the record if a game is recorded.
+     *
+     * @param row The row-index of the target, starting from 1.
+     * @param column The column-index of the target, starting from 1.
+     * @param result The result of the fire.
+     * @throws IOException if the record cannot be written.
+     */
+    public void append(int row, int column, int result) throws IOException {
+        if (out == null) return;
+        // One write per move, so a move is either written or not, unless the program stops in the middle of it.
+        out.write(buffer, 0, SaveCodec.encodeMove((row - 1) * columns + column - 1, result, buffer));
+    }
+
+    /**
+     * Return if a game is recorded.
+     *
+     * @return true if the moves are recorded.
+     */
+    public boolean isRecording() {
+        return out != null;
+    }
+
+    /**
+     * Close the record and move it to its final place.
+     *
+     * @param target The file path of the finished record.
+     * @throws IOException if the record cannot be moved.
+     */
+    public void archive(Path target) throws IOException {
+        close();
+        Path directory = target.toAbsolutePath().getParent();
+        if (directory != null) Files.createDirectories(directory);
+        Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Close the record if a game is recorded. The record stays, so the game can be resumed.
+     *
+     * @throws IOException if the record cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            FileOutputStream stream = out;
+            out = null;
+            stream.close();
+        }
+    }
+
+    /**
+     * Return if a player of the record is the given player: their name and the placement of their ships match.
+     *
+     * @param record The recorded game.
+     * @param number The number of the player in the record.
+     * @param player The player.
+     * @return true if it's the same player.
+     */
+    private static boolean isRecorded(GameRecord record, int number, Player player) {
+        GameConfig config = player.getConfig();
+        if (!record.getName(number).equals(player.getName()) || record.getConfig().getCells() != config.getCells()
+                || record.getConfig().getColumns() != config.getColumns()
+                || player.fleet.size() != record.getConfig().getFleetSize()) {
+            return false;
+        }
+        for (int i = 0; i < player.fleet.size(); i++) {
+            Ship ship = player.fleet.get(i);
+            int cell = (ship.getPosition().getRow() - 1) * config.getColumns() + ship.getPosition().getColumn() - 1;
+            if (record.getPlacement(number, i) != ((cell << 1) | ship.getDirection())) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Entry point of the game server. Every connection gets its own session with the main menu of the game,
+ * e.g. through telnet or netcat. The sessions have their own saved games and share the leader board.
+ *
+ * <p>A session spends most of its time waiting for its user, so every session runs on a virtual thread
+ * where they are available (Java 21 and later), otherwise on a platform thread.</p>
+ */
+public class GameServer {
+
+    /**
+     * The port the server listens on if it's not given in the arguments.
+     */
+    private static final int DEFAULT_PORT = 4343;
+
+    /**
+     * The directory of the saved games of the sessions.
+     */
+    private static final Path SAVE_DIRECTORY = Paths.get(".save/players");
+
+    /**
+     * The file path to the scores.
+     */
+    private static final Path SCORES_PATH = Paths.get(".scores.txt");
+
+    /**
+     * The maximum length of a player name. The name is part of the file name of the saved game.
+     */
+    private static final int MAX_NAME_LENGTH = 32;
+
+    /**
+     * The socket which accepts the connections.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * The leader board shared by the sessions.
+     */
+    private final Leaderboard leaderboard;
+
+    /**
+     * The rules of the new games.
+     */
+    private final GameConfig config;
+
+    /**
+     * The level of the computer in the new games. (See AI.NORMAL)
+     */
+    private final int aiLevel;
+
+    /**
+     * The names of the players who are connected (in lower case), so two sessions never use the same saved game.
+     */
+    private final Set<String> activeNames;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param serverSocket The socket which accepts the connections.
+     * @param leaderboard The leader board shared by the sessions.
+     * @param config The rules of the new games.
+     * @param aiLevel The level of the computer in the new games. (See AI.NORMAL)
+     */
+    public GameServer(ServerSocket serverSocket, Leaderboard leaderboard, GameConfig config, int aiLevel) {
+        this.serverSocket = serverSocket;
+        this.leaderboard = leaderboard;
+        this.config = config;
+        this.aiLevel = aiLevel;
+        activeNames = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * The entry point of the server.
+     *
+     * @param args The port to listen on, the size of the battlefields (e.g. '10x10'), the lengths of the ships
+     *             (e.g. '4,3x2,2x3,1x4') and the level of the computer ('normal', 'hard' or 'expert').
+     *             All of them are optional.
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        GameConfig config;
+        int aiLevel;
+        try {
+            if (args.length > 0) port = Integer.parseInt(args[0]);
+            config = GameConfig.parse(args.length > 1 ? args[1] : null, args.length > 2 ? args[2] : null);
+            aiLevel = args.length > 3 ? AI.parseLevel(args[3]) : AI.NORMAL;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: GameServer [PORT] [ROWSxCOLUMNS] [SHIP LENGTHS, e.g. 4,3x2,2x3,1x4] [LEVEL]");
+            return;
+        }
+
+        try (ServerSocket serverSocket = new ServerSocket(port);
+             Leaderboard leaderboard = new Leaderboard(SCORES_PATH)) {
+            GameMetrics.get().publish();
+            OpeningHeatmap.load(config);
+            System.out.printf("Serving games of %s on port %d...%n", config, serverSocket.getLocalPort());
+            new GameServer(serverSocket, leaderboard, config, aiLevel).serve();
+        } catch (IOException e) {
+            System.err.println("The server stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Accept connections and start a session for each of them until the server socket is closed.
+     *
+     * @throws IOException if the server socket cannot accept a connection.
+     */
+    public void serve() throws IOException {
+        ExecutorService sessions = newSessionExecutor();
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> runSession(socket));
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    /**
+     * Create the executor of the sessions: a virtual thread per session if the Java version has them,
+     * otherwise a platform thread per session.
+     *
+     * @return the executor of the sessions.
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Talk to a connected user until they exit or disconnect.
+     *
+     * @param socket The connection to the user.
+     */
+    private void runSession(Socket socket) {
+        try (socket; Terminal terminal = new Terminal(socket.getInputStream(), socket.getOutputStream())) {
+            String name = login(terminal);
+            try {
+                // Every session plays its own games, the seeds are printed for replaying them.
+                Menu menu = new Menu(SAVE_DIRECTORY.resolve(name + ".save"), leaderboard, config, aiLevel,
+                        new SplittableRandom().nextLong(), terminal);
+                try {
+                    menu.run();
+                } finally {
+                    menu.close();
+                }
+            } finally {
+                activeNames.remove(name.toLowerCase(Locale.ROOT));
+            }
+        } catch (IOException | NoSuchElementException e) {
+            // The user disconnected. Their game is saved after every shot, so they can load it next time.
+        }
+    }
+
+    /**
+     * Ask the name of the player until they give a valid one which is not used by another session.
+     *
+     * @param terminal The terminal of the session.
+     * @return the name of the player.
+     * @throws NoSuchElementException if the user disconnects.
+     */
+    private String login(Terminal terminal) {
+        terminal.println("Welcome to Battleships! Your saved game is kept under your player name.");
+        while (true) {
+            terminal.println("What is your player name? (letters, digits, '-' and '_')");
+            String name = terminal.nextLine().trim();
+            if (name.isEmpty() || name.length() > MAX_NAME_LENGTH || !name.matches("[A-Za-z0-9_-]+")) {
+                terminal.println("Not a valid name.");
+            } else if (!activeNames.add(name.toLowerCase(Locale.ROOT))) {
+                terminal.println("This player is already playing.");
+            } else {
+                return name;
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.PrintStream;
+
+/**
+ * Draws the battlefields of the two players next to each other.
+ * The parts of the frame which never change (separators, column indexes, row indexes) are generated once,
+ * and every frame is written into the same buffer which is printed in a single write.
+ */
+public class GridRenderer {
+
+    /**
+     * The number of spaces after the content of a cell.
+     */
+    private static final int CELL_PADDING = (int) Math.ceil(Menu.COLUMN_WIDTH / 2f) - 1;
+
+    /**
+     * The line separator of the platform, the same as println() uses.
+     */
+    private static final String NEW_LINE = System.lineSeparator();
+
+    /**
+     * The number of rows of a table.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of a table.
+     */
+    private final int columns;
+
+    /**
+     * The width of one table.
+     */
+    private final int tableWidth;
+
+    /**
+     * The width of the first cell of a table's head. (without the borders)
+     */
+    private final int firstHeadCellWidth;
+
+    /**
+     * The width of the second cell of a table's head. (without the borders)
+     */
+    private final int secondHeadCellWidth;
+
+    /**
+     * The gap between the two tables.
+     */
+    private final String gap;
+
+    /**
+     * The separator line of the tables' heads.
+     */
+    private final String headsSeparator;
+
+    /**
+     * The line with the column indexes of both tables.
+     */
+    private final String columnIndexes;
+
+    /**
+     * The separator line between two rows of both tables.
+     */
+    private final String rowSeparator;
+
+    /**
+     * The first cell of each row of a table, which contains the index of the row.
+     */
+    private final String[] rowIndexes;
+
+    /**
+     * The spaces before the content of a cell.
+     */
+    private final String cellPrefix;
+
+    /**
+     * The spaces after the content of a cell and the separator of the columns.
+     */
+    private final String cellSuffix;
+
+    /**
+     * The buffer of the current frame. It is reused between the frames.
+     */
+    private final StringBuilder frame;
+
+    /**
+     * The buffer of the displayable data of a row's cells. It is reused between the rows and the frames.
+     */
+    private final char[] rowData;
+
+    /**
+     * The default constructor of the class. Generates the static parts of the frame.
+     *
+     * @param config The rules of the game, which tell the size of the battlefields.
+     */
+    public GridRenderer(GameConfig config) {
+        rows = config.getRows();
+        columns = config.getColumns();
+        tableWidth = (columns + 1) * (Menu.COLUMN_WIDTH + 1);
+        firstHeadCellWidth = (int) (tableWidth / 2f - 2);
+        secondHeadCellWidth = (int) Math.ceil(tableWidth / 2f) - 1;
+        gap = " ".repeat(Menu.GAP);
+        String tableHeadSeparator = "|" + "-".repeat(tableWidth - 2) + "|";
+        headsSeparator = tableHeadSeparator + gap + tableHeadSeparator;
+
+        // A cell is right aligned and cut to the width of the column.
+        cellPrefix = " ".repeat(Math.max(Menu.COLUMN_WIDTH - 1 - CELL_PADDING, 0));
+        cellSuffix = " ".repeat(Math.min(CELL_PADDING, Menu.COLUMN_WIDTH - 1)) + Menu.COLUMN_SEPARATOR;
+
+        StringBuilder builder = new StringBuilder(cell(""));
+        for (int i = 0; i < columns; i++) {
+            builder.append(cell(Position.calculateColumnIndexFromInteger(i + 1)));
+        }
+        columnIndexes = builder + gap + builder;
+
+        String lineSeparator = "-".repeat(Menu.COLUMN_WIDTH);
+        builder.setLength(0);
+        for (int i = 0; i <= columns; i++) {
+            builder.append(cell(lineSeparator));
+        }
+        rowSeparator = builder + gap + builder;
+
+        rowIndexes = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            rowIndexes[row] = cell(String.valueOf(row + 1));
+        }
+
+        frame = new StringBuilder((rowSeparator.length() + NEW_LINE.length()) * (rows * 2 + 10));
+        rowData = new char[columns];
+    }
+
+    /**
+     * Draw the battlefields of two players next to each other, with their names and scores above them.
+     *
+     * @param out The stream to draw to.
+     * @param left The player whose battlefield is on the left.
+     * @param right The player whose battlefield is on the right.
+     */
+    public void render(PrintStream out, Player left, Player right) {
+        frame.setLength(0);
+        appendHeads(left, right);
+
+        frame.append(columnIndexes).append(NEW_LINE);
+        frame.append(rowSeparator).append(NEW_LINE);
+        // Battlefields line by line
+        for (int row = 0; row < rows; row++) {
+            left.getBattlefieldData(row, rowData);
+            appendRow(row, rowData);
+            frame.append(gap);
+            right.getBattlefieldData(row, rowData);
+            appendRow(row, rowData);
+            frame.append(NEW_LINE);
+            frame.append(rowSeparator).append(NEW_LINE);
+        }
+        frame.append(NEW_LINE);
+
+        out.print(frame);
+        out.flush();
+    }
+
+    /**
+     * Append the heads of the two tables to the frame. They contain the names of the players and their scores.
+     *
+     * @param left The player whose battlefield is on the left.
+     * @param right The player whose battlefield is on the right.
+     */
+    private void appendHeads(Player left, Player right) {
+        frame.append(NEW_LINE);
+        frame.append(headsSeparator).append(NEW_LINE);
+        appendName(left.getName());
+        frame.append(gap);
+        appendName(right.getName());
+        frame.append(NEW_LINE);
+        frame.append(headsSeparator).append(NEW_LINE);
+        appendScores(left);
+        frame.append(gap);
+        appendScores(right);
+        frame.append(NEW_LINE);
+        frame.append(headsSeparator).append(NEW_LINE);
+        frame.append(NEW_LINE);
+    }
+
+    /**
+     * Append the name of a player to the frame, centered in the width of a table.
+     *
+     * @param name The name of the player.
+     */
+    private void appendName(String name) {
+        // The position of the name's end, which centers it above the table.
+        int position = (int) Math.floor((tableWidth - 2 - name.length()) / 2f) + name.length();
+        String label = name.toUpperCase();
+        frame.append('|');
+        appendSpaces(position - label.length());
+        frame.append(label);
+        appendSpaces(tableWidth - position - 2);
+        frame.append('|');
+    }
+
+    /**
+     * Append the hits and the misses of a player to the frame.
+     *
+     * @param player The player whose scores to append.
+     */
+    private void appendScores(Player player) {
+        int start = frame.length();
+        frame.append("| Hits: ").append(player.getHits());
+        appendSpaces(start + 1 + firstHeadCellWidth - frame.length());
+        start = frame.length();
+        frame.append("| Misses: ").append(player.getMisses());
+        appendSpaces(start + 1 + secondHeadCellWidth - frame.length());
+        frame.append('|');
+    }
+
+    /**
+     * Append a row of a table to the frame.
+     *
+     * @param row The index of the row.
+     * @param data The displayable data of the row's cells.
+     */
+    private void appendRow(int row, char[] data) {
+        frame.append(rowIndexes[row]);
+        for (int i = 0; i < columns; i++) {
+            frame.append(cellPrefix).append(data[i]).append(cellSuffix);
+        }
+    }
+
+    /**
+     * Append spaces to the frame.
+     *
+     * @param count The number of spaces. Nothing is appended if it's not positive.
+     */
+    private void appendSpaces(int count) {
+        for (int i = 0; i < count; i++) {
+            frame.append(' ');
+        }
+    }
+
+    /**
+     * Generate a cell of a table with a border on its right side.
+     *
+     * @param content The content of the cell.
+     * @return the generated cell.
+     */
+    private static String cell(String content) {
+        return String.format("%" + Menu.COLUMN_WIDTH + "." + Menu.COLUMN_WIDTH + "s" + Menu.COLUMN_SEPARATOR,
+                content + " ".repeat(CELL_PADDING));
+    }
+}
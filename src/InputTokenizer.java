@@ -0,0 +1,217 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the input of the user by lines and numbers from a character buffer. It does what the game used from
+ * Scanner without regular expressions, so a script of commands is read as fast as the game can execute them.
+ *
+ * <p>The numbers and the lines can be mixed like with Scanner: a number is a word between whitespace,
+ * and the following nextLine() returns the rest of its line.</p>
+ */
+public class InputTokenizer implements Closeable {
+
+    /**
+     * The initial size of the buffer. It grows if a line doesn't fit into it.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The source of the input.
+     */
+    private final Reader reader;
+
+    /**
+     * The characters read from the source. The unread ones are between position and limit.
+     */
+    private char[] buffer;
+
+    /**
+     * The index of the next unread character in the buffer.
+     */
+    private int position;
+
+    /**
+     * The number of characters in the buffer.
+     */
+    private int limit;
+
+    /**
+     * True if the source has no more characters.
+     */
+    private boolean ended;
+
+    /**
+     * The end index of the number found by the last hasNextInt(), or -1 if it's not known.
+     * It's cleared whenever the input is read.
+     */
+    private int numberEnd;
+
+    /**
+     * The value of the number found by the last hasNextInt().
+     */
+    private int number;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param reader The source of the input. It's read in large blocks, so it doesn't have to be buffered.
+     */
+    public InputTokenizer(Reader reader) {
+        this.reader = reader;
+        buffer = new char[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+        ended = false;
+        numberEnd = -1;
+    }
+
+    /**
+     * Read the rest of the current line.
+     *
+     * @return the line without the line separator ('\n' or "\r\n").
+     * @throws NoSuchElementException if there is no more input.
+     */
+    public String nextLine() {
+        numberEnd = -1;
+        int scanned = 0;
+        while (true) {
+            for (int i = position + scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    String line = line(position, i);
+                    position = i + 1;
+                    return line;
+                }
+            }
+            scanned = limit - position;
+            if (!fill()) {
+                // The last line of the input doesn't have to end with a line separator.
+                if (position == limit) throw new NoSuchElementException("No line found");
+                String line = line(position, limit);
+                position = limit;
+                return line;
+            }
+        }
+    }
+
+    /**
+     * Return true if the next word of the input is a number. It skips the whitespace before the word,
+     * and waits for the input if there isn't any.
+     *
+     * @return true if the next word is a number which fits into an int.
+     */
+    public boolean hasNextInt() {
+        if (numberEnd >= 0) return true;
+        // Skip the whitespace, including the empty lines.
+        while (true) {
+            while (position < limit && Character.isWhitespace(buffer[position])) position++;
+            if (position < limit || !fill()) break;
+        }
+        if (position == limit) return false;
+
+        // Find the end of the word.
+        int scanned = 0;
+        while (true) {
+            int end = position + scanned;
+            while (end < limit && !Character.isWhitespace(buffer[end])) end++;
+            scanned = end - position;
+            if (end < limit || !fill()) break;
+        }
+        int end = position + scanned;
+
+        // Parse it as a number.
+        int i = position;
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') i++;
+        if (i == end) return false;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return false;
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) return false;
+        }
+        if (negative) value = -value;
+        if (value > Integer.MAX_VALUE) return false;
+        number = (int) value;
+        numberEnd = end;
+        return true;
+    }
+
+    /**
+     * Read the next word of the input as a number.
+     *
+     * @return the number.
+     * @throws InputMismatchException if the next word is not a number.
+     * @throws NoSuchElementException if there is no more input.
+     */
+    public int nextInt() {
+        if (!hasNextInt()) {
+            if (position == limit) throw new NoSuchElementException();
+            throw new InputMismatchException();
+        }
+        position = numberEnd;
+        numberEnd = -1;
+        return number;
+    }
+
+    /**
+     * Close the source of the input.
+     */
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Create a string from a part of the buffer without the carriage return at its end.
+     *
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     * @return the line.
+     */
+    private String line(int start, int end) {
+        if (end > start && buffer[end - 1] == '\r') end--;
+        return new String(buffer, start, end - start);
+    }
+
+    /**
+     * Read more characters into the buffer. The unread characters are moved to its start,
+     * and it grows if they fill it.
+     *
+     * @return false if there are no more characters.
+     */
+    private boolean fill() {
+        if (ended) return false;
+        int unread = limit - position;
+        if (unread == buffer.length) {
+            char[] grown = new char[buffer.length * 2];
+            System.arraycopy(buffer, position, grown, 0, unread);
+            buffer = grown;
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, unread);
+        }
+        position = 0;
+        limit = unread;
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                ended = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            // The user cannot give more input, like at the end of it.
+            ended = true;
+            return false;
+        }
+    }
+}
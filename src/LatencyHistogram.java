@@ -0,0 +1,157 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies which can be recorded by several threads at the same time without locking.
+ * The buckets are log-linear: every power of two is split into 8 buckets, so a percentile is accurate within
+ * 12.5% from a nanosecond to hundreds of years, in less than 4 KB.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of buckets per power of two, as a power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The latencies below this are counted one by one. (nanoseconds)
+     */
+    private static final int LINEAR_LIMIT = 2 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of buckets.
+     */
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    /**
+     * The number of latencies in each bucket.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * The number of recorded latencies.
+     */
+    private final AtomicLong count;
+
+    /**
+     * The sum of the recorded latencies. (nanoseconds)
+     */
+    private final AtomicLong sum;
+
+    /**
+     * The longest recorded latency. (nanoseconds)
+     */
+    private final AtomicLong max;
+
+    /**
+     * The default constructor of the class. The histogram is empty.
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency in nanoseconds. A negative one (e.g. a clock error) is recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Return the number of recorded latencies.
+     *
+     * @return the number of latencies.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Return the average of the recorded latencies.
+     *
+     * @return the mean latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Return the longest recorded latency.
+     *
+     * @return the maximum latency in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return the latency which the given part of the recorded latencies doesn't exceed.
+     * The result is the upper bound of the bucket the percentile falls into, but at most the maximum.
+     *
+     * @param percentile The part of the latencies, between 0 and 100.
+     * @return the latency at the percentile in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget every recorded latency. The latencies recorded at the same time may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Return the bucket of a latency.
+     *
+     * @param nanos The latency in nanoseconds, not negative.
+     * @return the index of the bucket.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < LINEAR_LIMIT) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_LIMIT + ((exponent - SUB_BUCKET_BITS - 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * Return the largest latency of a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return the largest latency in the bucket in nanoseconds.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int exponent = ((bucket - LINEAR_LIMIT) >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS + 1;
+        long subBucket = (bucket - LINEAR_LIMIT) & ((1 << SUB_BUCKET_BITS) - 1);
+        long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
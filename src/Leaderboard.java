@@ -0,0 +1,553 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps every score ever saved on the disk, sorted and indexed, so the best scores and the rank of a score can be
+ * queried without reading all of them.
+ *
+ * <p>The leader board is stored in three files next to each other:</p>
+ * <ul>
+ *     <li>The index: the merged scores sorted from the best to the worst (the older first if they are equal), as
+ *         fixed size records (the score and the position of the name in the names file, 12 bytes). It starts with a
+ *         3 byte magic, a version byte and the size of the names file when it was written.</li>
+ *     <li>The names: the names of the players one after the other, as their UTF-8 length and bytes. It's only
+ *         appended.</li>
+ *     <li>The tail: the records of the scores saved since the index was written, in the order they were saved.
+ *         It's kept sorted in the memory as well, and it's merged into the index when it grows too large
+ *         compared to the index.</li>
+ * </ul>
+ * <p>So saving a score is two small appends, reading the best K scores reads K records and names, and finding the
+ * rank of a score is a binary search. The index is replaced in one atomic move; if the game stops before the tail is
+ * emptied, the records of the tail which are already in the index are recognised by the position of their names.</p>
+ *
+ * <p>A leader board in the old formats (the top 10 scores written by SaveCodec or with Java serialization) is
+ * imported when the leader board is opened the first time. If it cannot be read, it's skipped with a warning and
+ * the leader board starts empty, it's never imported again. Every score appends a name, so if the names file is
+ * longer than expected, another program saved a score, and the files are opened again. It's thread-safe.</p>
+ */
+public class Leaderboard implements Closeable {
+
+    /**
+     * The first bytes of the index.
+     */
+    private static final byte[] MAGIC = {'B', 'S', 'L'};
+
+    /**
+     * The version of the index format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header of the index. (bytes)
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * The size of a record of the index and the tail. (bytes)
+     */
+    private static final int RECORD_SIZE = 12;
+
+    /**
+     * The number of records in the tail which is always allowed before merging it.
+     */
+    private static final int MIN_TAIL_SIZE = 1024;
+
+    /**
+     * The tail is merged when it has more records than the index divided by this.
+     * So a record is rewritten only a few times on average while the leader board grows.
+     */
+    private static final int MERGE_RATIO = 8;
+
+    /**
+     * The number of records read or written at once while merging.
+     */
+    private static final int MERGE_CHUNK = 4096;
+
+    /**
+     * The file path of the leader board in the old format.
+     */
+    private final Path legacyPath;
+
+    /**
+     * The file path of the index.
+     */
+    private final Path indexPath;
+
+    /**
+     * The file path of the index while it's being written.
+     */
+    private final Path temporaryPath;
+
+    /**
+     * The file path of the names.
+     */
+    private final Path namesPath;
+
+    /**
+     * The file path of the tail.
+     */
+    private final Path tailPath;
+
+    /**
+     * The open index, or null if the leader board is not open or the index doesn't exist yet.
+     */
+    private FileChannel index;
+
+    /**
+     * The open names file, or null if the leader board is not open.
+     */
+    private FileChannel names;
+
+    /**
+     * The open tail, or null if the leader board is not open.
+     */
+    private FileChannel tail;
+
+    /**
+     * The number of records in the index.
+     */
+    private long indexSize;
+
+    /**
+     * The size of the names file when the index was written. The names before it belong to the index.
+     */
+    private long mergedNamesSize;
+
+    /**
+     * The size of the names file.
+     */
+    private long namesSize;
+
+    /**
+     * The scores of the tail in the order they were saved.
+     */
+    private int[] tailScores;
+
+    /**
+     * The position of the names of the scores of the tail in the names file.
+     */
+    private long[] tailNames;
+
+    /**
+     * The tail sorted from the best score to the worst: the score inverted in the upper 32 bits
+     * (so a better score is a smaller number) and the index of the record in the tail in the lower 32 bits.
+     */
+    private long[] tailOrder;
+
+    /**
+     * The number of records in the tail.
+     */
+    private int tailSize;
+
+    /**
+     * The default constructor of the class. The files are opened when the leader board is used first.
+     *
+     * @param path The file path of the leader board in the old format. The files of the leader board are next to it,
+     *             with the same name and the '.index', '.names' and '.tail' extensions.
+     */
+    public Leaderboard(Path path) {
+        legacyPath = path;
+        indexPath = path.resolveSibling(path.getFileName() + ".index");
+        temporaryPath = path.resolveSibling(path.getFileName() + ".index.tmp");
+        namesPath = path.resolveSibling(path.getFileName() + ".names");
+        tailPath = path.resolveSibling(path.getFileName() + ".tail");
+        tailScores = new int[16];
+        tailNames = new long[16];
+        tailOrder = new long[16];
+        tailSize = 0;
+    }
+
+    /**
+     * Save a score.
+     *
+     * @param score The score to save.
+     * @throws IOException if the leader board cannot be read or written.
+     */
+    public synchronized void add(Score score) throws IOException {
+        open();
+        refresh();
+        append(score);
+        if (tailSize >= Math.max(MIN_TAIL_SIZE, indexSize / MERGE_RATIO)) merge();
+    }
+
+    /**
+     * Return the best scores.
+     *
+     * @param count The maximum number of scores to return.
+     * @return the best scores from the best to the worst. If two scores are equal, the older is the first.
+     * @throws IOException if the leader board cannot be read.
+     */
+    public synchronized List<Score> getTop(int count) throws IOException {
+        open();
+        refresh();
+        int fromIndex = (int) Math.min(count, indexSize);
+        ByteBuffer records = fromIndex == 0 ? null : read(index, HEADER_SIZE, fromIndex * RECORD_SIZE);
+        List<Score> top = new ArrayList<>(Math.min(count, fromIndex + tailSize));
+        int i = 0;
+        int j = 0;
+        while (top.size() < count && (i < fromIndex || j < tailSize)) {
+            int fromTail = j < tailSize ? (int) tailOrder[j] : -1;
+            // The index has the older scores, so it comes first if the scores are equal.
+            if (i < fromIndex && (fromTail == -1 || records.getInt(i * RECORD_SIZE) >= tailScores[fromTail])) {
+                top.add(new Score(readName(records.getLong(i * RECORD_SIZE + 4)), records.getInt(i * RECORD_SIZE)));
+                i++;
+            } else {
+                top.add(new Score(readName(tailNames[fromTail]), tailScores[fromTail]));
+                j++;
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Return the rank of a score: one more than the number of saved scores which are better than it.
+     *
+     * @param score The score to rank. It doesn't have to be saved.
+     * @return the rank of the score, starting from 1.
+     * @throws IOException if the leader board cannot be read.
+     */
+    public synchronized long getRank(int score) throws IOException {
+        open();
+        refresh();
+        // The number of better scores in the index
+        long low = 0;
+        long high = indexSize;
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            buffer.clear();
+            readFully(index, buffer, HEADER_SIZE + middle * RECORD_SIZE);
+            if (buffer.getInt(0) > score) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        // The number of better scores in the tail
+        int position = Arrays.binarySearch(tailOrder, 0, tailSize, (long) ~score << 32);
+        if (position < 0) position = -position - 1;
+        return low + position + 1;
+    }
+
+    /**
+     * Return the number of saved scores.
+     *
+     * @return the number of scores.
+     * @throws IOException if the leader board cannot be read.
+     */
+    public synchronized long size() throws IOException {
+        open();
+        refresh();
+        return indexSize + tailSize;
+    }
+
+    /**
+     * Return a stamp of the last modification of the leader board on the disk, by this or another program.
+     * It changes when a score is saved, so it can be used to check if a copy of the leader board is still valid.
+     *
+     * @return the stamp, or 0 if the leader board doesn't exist yet.
+     * @throws IOException if the files of the leader board cannot be read.
+     */
+    public synchronized long getModificationStamp() throws IOException {
+        if (!Files.exists(namesPath)) return 0;
+        BasicFileAttributes attributes = Files.readAttributes(namesPath, BasicFileAttributes.class);
+        // The size changes with every score, the time if the file is replaced with another one with the same size.
+        return attributes.size() * 31 + attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Close the files of the leader board. It's opened again when it's used next time.
+     *
+     * @throws IOException if a file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (index != null) index.close();
+            if (names != null) names.close();
+            if (tail != null) tail.close();
+        } finally {
+            index = null;
+            names = null;
+            tail = null;
+            tailSize = 0;
+        }
+    }
+
+    /**
+     * Open the files of the leader board if they are not open yet, and import the old leader board
+     * if the leader board doesn't exist yet.
+     *
+     * @throws IOException if the leader board cannot be read.
+     */
+    private void open() throws IOException {
+        if (names != null) return;
+        List<Score> legacy = null;
+        if (!Files.exists(indexPath) && !Files.exists(namesPath) && Files.isReadable(legacyPath)) {
+            legacy = readLegacy();
+        }
+        Path directory = indexPath.toAbsolutePath().getParent();
+        if (directory != null) Files.createDirectories(directory);
+        try {
+            openIndex();
+            names = FileChannel.open(namesPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            namesSize = names.size();
+            tail = FileChannel.open(tailPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            readTail();
+            if (legacy != null) {
+                for (Score score : legacy) append(score);
+                merge();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the leader board of the old format. A failed import must not lock the user out of the leader board,
+     * so if it cannot be read, it's skipped.
+     *
+     * @return the scores of the old leader board, or null if it cannot be read.
+     */
+    private List<Score> readLegacy() {
+        try {
+            return SaveCodec.decodeScores(Files.readAllBytes(legacyPath));
+        } catch (IOException | SecurityException e) {
+            System.err.println("The old leader board cannot be imported, it's skipped: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Open the files again if another program saved a score since they were opened.
+     *
+     * @throws IOException if the leader board cannot be read.
+     */
+    private void refresh() throws IOException {
+        if (names.size() == namesSize) return;
+        close();
+        open();
+    }
+
+    /**
+     * Open the index if it exists.
+     *
+     * @throws IOException if the index cannot be read or it's not valid.
+     */
+    private void openIndex() throws IOException {
+        indexSize = 0;
+        mergedNamesSize = 0;
+        if (!Files.exists(indexPath)) return;
+        index = FileChannel.open(indexPath, StandardOpenOption.READ);
+        ByteBuffer header = read(index, 0, HEADER_SIZE);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) throw new IOException("Not a leader board: " + indexPath);
+        }
+        if (header.get(MAGIC.length) != VERSION) {
+            throw new IOException("Unsupported leader board version: " + header.get(MAGIC.length));
+        }
+        mergedNamesSize = header.getLong(4);
+        indexSize = (index.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /**
+     * Load the tail into the memory. The records which are already in the index, the ones which have no name
+     * (e.g. because of a crash while writing them) and an incomplete record at the end are dropped from the file.
+     *
+     * @throws IOException if the tail cannot be read or written.
+     */
+    private void readTail() throws IOException {
+        tailSize = 0;
+        long size = tail.size();
+        ByteBuffer records = read(tail, 0, (int) (size / RECORD_SIZE * RECORD_SIZE));
+        while (records.remaining() >= RECORD_SIZE) {
+            int score = records.getInt();
+            long name = records.getLong();
+            if (name >= mergedNamesSize && name < namesSize) addToTail(score, name);
+        }
+        if (tailSize * (long) RECORD_SIZE != size) {
+            // Rewrite the valid records, so the new ones are appended after them.
+            ByteBuffer valid = ByteBuffer.allocate(tailSize * RECORD_SIZE);
+            for (int i = 0; i < tailSize; i++) valid.putInt(tailScores[i]).putLong(tailNames[i]);
+            valid.flip();
+            tail.truncate(0);
+            writeFully(tail, valid, 0);
+        }
+    }
+
+    /**
+     * Append a score to the names and the tail.
+     *
+     * @param score The score to append.
+     * @throws IOException if the files cannot be written.
+     */
+    private void append(Score score) throws IOException {
+        byte[] name = score.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + name.length);
+        buffer.putInt(name.length).put(name).flip();
+        long position = namesSize;
+        // The name is written first, so a record in the tail always has its name.
+        writeFully(names, buffer, position);
+        namesSize += buffer.capacity();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putInt(score.getScore()).putLong(position).flip();
+        writeFully(tail, record, tailSize * (long) RECORD_SIZE);
+        addToTail(score.getScore(), position);
+    }
+
+    /**
+     * Add a record to the tail in the memory.
+     *
+     * @param score The score.
+     * @param name The position of the name in the names file.
+     */
+    private void addToTail(int score, long name) {
+        if (tailSize == tailScores.length) {
+            tailScores = Arrays.copyOf(tailScores, tailSize * 2);
+            tailNames = Arrays.copyOf(tailNames, tailSize * 2);
+            tailOrder = Arrays.copyOf(tailOrder, tailSize * 2);
+        }
+        tailScores[tailSize] = score;
+        tailNames[tailSize] = name;
+        long key = (long) ~score << 32 | tailSize;
+        // The keys are unique, so the search always returns the insertion point.
+        int position = -Arrays.binarySearch(tailOrder, 0, tailSize, key) - 1;
+        System.arraycopy(tailOrder, position, tailOrder, position + 1, tailSize - position);
+        tailOrder[position] = key;
+        tailSize++;
+    }
+
+    /**
+     * Merge the tail into the index: write a new index next to the old one, then move it in place of the old one.
+     *
+     * @throws IOException if the index cannot be written.
+     */
+    private void merge() throws IOException {
+        try (FileChannel merged = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(MERGE_CHUNK * RECORD_SIZE);
+            out.put(MAGIC).put((byte) VERSION).putLong(namesSize);
+            ByteBuffer in = ByteBuffer.allocate(MERGE_CHUNK * RECORD_SIZE);
+            in.flip();
+            long position = 0;
+            long read = 0;
+            int j = 0;
+            while (read < indexSize || in.hasRemaining() || j < tailSize) {
+                if (!in.hasRemaining() && read < indexSize) {
+                    int records = (int) Math.min(MERGE_CHUNK, indexSize - read);
+                    in.clear().limit(records * RECORD_SIZE);
+                    readFully(index, in, HEADER_SIZE + read * RECORD_SIZE);
+                    in.flip();
+                    read += records;
+                }
+                if (out.remaining() < RECORD_SIZE) {
+                    out.flip();
+                    position += writeFully(merged, out, position);
+                    out.clear();
+                }
+                int fromTail = j < tailSize ? (int) tailOrder[j] : -1;
+                // The index has the older scores, so it comes first if the scores are equal.
+                if (in.hasRemaining() && (fromTail == -1 || in.getInt(in.position()) >= tailScores[fromTail])) {
+                    out.putInt(in.getInt()).putLong(in.getLong());
+                } else {
+                    out.putInt(tailScores[fromTail]).putLong(tailNames[fromTail]);
+                    j++;
+                }
+            }
+            out.flip();
+            writeFully(merged, out, position);
+            merged.force(true);
+        }
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+        try {
+            Files.move(temporaryPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        openIndex();
+        tail.truncate(0);
+        tailSize = 0;
+    }
+
+    /**
+     * Read a name from the names file.
+     *
+     * @param position The position of the name.
+     * @return the name.
+     * @throws IOException if the name cannot be read.
+     */
+    private String readName(long position) throws IOException {
+        int length = read(names, position, Integer.BYTES).getInt();
+        if (length < 0 || position + Integer.BYTES + length > namesSize) {
+            throw new IOException("Invalid name in the leader board at " + position);
+        }
+        ByteBuffer name = read(names, position + Integer.BYTES, length);
+        return new String(name.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read bytes from a file.
+     *
+     * @param channel The file to read.
+     * @param position Where to start reading.
+     * @param size The number of bytes to read.
+     * @return the bytes which were read, ready to be read from the beginning.
+     * @throws IOException if the file cannot be read or it ends before the bytes.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        readFully(channel, buffer, position);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Fill the remaining space of a buffer from a file.
+     *
+     * @param channel The file to read.
+     * @param buffer The buffer to fill.
+     * @param position Where to start reading.
+     * @throws IOException if the file cannot be read or it ends before the buffer is filled.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) throw new EOFException("Unexpected end of the leader board.");
+            position += read;
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to a file.
+     *
+     * @param channel The file to write.
+     * @param buffer The bytes to write.
+     * @param position Where to start writing.
+     * @return the number of bytes written.
+     * @throws IOException if the file cannot be written.
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+}
@@ -1,10 +1,18 @@
 import java.io.*;
 import java.nio.file.*;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main menu and entry point of the game. It handles all the interactions between the user(s) and the computer.
@@ -85,15 +93,108 @@ public class Menu {
 	public static final char SANK_SHIP = '#';
 
 	/**
-	 * The file path to the saved game(s).
+	 * The default file path to the saved game(s).
 	 */
 	private static final Path SAVE_PATH = Paths.get(".save/save01.save");
 
 	/**
-	 * The file path to the top scores.
+	 * The default file path to the scores.
 	 */
 	private static final Path SCORES_PATH = Paths.get(".scores.txt");
 
+	/**
+	 * The number of the best scores shown on the leader board.
+	 */
+	private static final int LEADERBOARD_SIZE = 10;
+
+	/**
+	 * The number of seconds the score writer's thread waits for a new score before it exits.
+	 */
+	private static final int SCORE_WRITER_KEEP_ALIVE = 5;
+
+	/**
+	 * The file path to the saved game(s).
+	 */
+	private final Path savePath;
+
+	/**
+	 * Every score saved from the previous plays.
+	 */
+	private final Leaderboard leaderboard;
+
+	/**
+	 * The top scores of the leader board, or null if they are not loaded yet.
+	 * It's updated when a score is saved, and loaded again only if the leader board was changed by another program.
+	 */
+	private List<Score> topScores;
+
+	/**
+	 * The modification stamp of the leader board which the top scores belong to.
+	 */
+	private long topScoresStamp;
+
+	/**
+	 * Writes the scores to the leader board in the background, one after the other.
+	 */
+	private final ExecutorService scoreWriter;
+
+	/**
+	 * The scores submitted to the score writer whose results are not told to the user yet, in the order of
+	 * submission. A write results in the message with the rank of its score.
+	 */
+	private final Map<Future<String>, Score> scoreWrites;
+
+	/**
+	 * The number of shots appended to the save journal before the whole game is saved again.
+	 */
+	private static final int JOURNAL_COMPACTION_INTERVAL = 32;
+
+	/**
+	 * Writes the saved game and the journal of the shots fired since it was saved in the background.
+	 */
+	private final SaveWriter saveWriter;
+
+	/**
+	 * Records the moves of the game in progress, so it can be replayed after it ended. (See Replay)
+	 */
+	private final GameRecorder recorder;
+
+	/**
+	 * The number of shots submitted to the journal since the game was saved the last time.
+	 */
+	private int journalShots;
+
+	/**
+	 * The generation of the last saved (or loaded) game. The journal belongs to this generation.
+	 */
+	private long generation;
+
+	/**
+	 * The rules of the new games: the size of the battlefields and the ships of the fleets.
+	 */
+	private final GameConfig config;
+
+	/**
+	 * The level of the computer in the new games. (See AI.NORMAL)
+	 */
+	private final int aiLevel;
+
+	/**
+	 * Generates the seeds of the games, so a session started with the same seed plays the same games.
+	 * (See GameOfBattleships.getSeed())
+	 */
+	private final SplittableRandom seeds;
+
+	/**
+	 * The seed of the earlier game which the next new game replays, or null if it's a new game. (See replayGame())
+	 */
+	private Long replaySeed;
+
+	/**
+	 * The terminal through which the user communicates with the program.
+	 */
+	private final Terminal terminal;
+
 	/**
 	 * The current game.
 	 */
@@ -106,73 +207,198 @@ public class Menu {
 
 	/**
 	 * The default constructor of the class
+	 *
+	 * @param config The rules of the new games.
+	 * @param aiLevel The level of the computer in the new games.
+	 * @param seed The seed of the seeds of the games.
+	 * @param terminal The terminal through which the user communicates with the program.
+	 */
+	private Menu(GameConfig config, int aiLevel, long seed, Terminal terminal) {
+		this(SAVE_PATH, new Leaderboard(SCORES_PATH), config, aiLevel, seed, terminal);
+	}
+
+	/**
+	 * Create a menu which stores its files at the given paths and starts classic games.
+	 *
+	 * @param savePath The file path to the saved game(s).
+	 * @param scoresPath The file path to the scores.
+	 */
+	Menu(Path savePath, Path scoresPath) {
+		this(savePath, scoresPath, GameConfig.DEFAULT);
+	}
+
+	/**
+	 * Create a menu which stores its files at the given paths and communicates through the console.
+	 *
+	 * @param savePath The file path to the saved game(s).
+	 * @param scoresPath The file path to the scores.
+	 * @param config The rules of the new games.
+	 */
+	Menu(Path savePath, Path scoresPath, GameConfig config) {
+		this(savePath, new Leaderboard(scoresPath), config, AI.NORMAL, new SplittableRandom().nextLong(),
+				Terminal.console());
+	}
+
+	/**
+	 * Create a menu for one user. Several menus can share a leader board, e.g. the sessions of the game server.
+	 *
+	 * @param savePath The file path to the saved game(s).
+	 * @param leaderboard Every score saved from the previous plays.
+	 * @param config The rules of the new games.
+	 * @param aiLevel The level of the computer in the new games. (See AI.NORMAL)
+	 * @param seed The seed of the seeds of the games.
+	 * @param terminal The terminal through which the user communicates with the program.
 	 */
-	private Menu() {
-		hasSavedGame = Files.exists(SAVE_PATH);
+	Menu(Path savePath, Leaderboard leaderboard, GameConfig config, int aiLevel, long seed, Terminal terminal) {
+		this.savePath = savePath;
+		this.leaderboard = leaderboard;
+		topScores = null;
+		// The thread exits when there's nothing to write, so the idle sessions of the server don't keep one.
+		scoreWriter = new ThreadPoolExecutor(0, 1, SCORE_WRITER_KEEP_ALIVE, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), task -> {
+			Thread thread = new Thread(task, "score-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scoreWrites = new LinkedHashMap<>();
+		this.config = config;
+		this.aiLevel = aiLevel;
+		seeds = new SplittableRandom(seed);
+		replaySeed = null;
+		this.terminal = terminal;
+		saveWriter = new SaveWriter(savePath, savePath.resolveSibling(savePath.getFileName() + ".journal"));
+		recorder = new GameRecorder(savePath.resolveSibling(savePath.getFileName() + ".record"));
+		journalShots = 0;
+		generation = 0;
+		hasSavedGame = Files.exists(savePath);
 		game = null;
 	}
 
 	/**
 	 * The entry point of the game.
 	 *
-	 * @param args The arguments the game starts with.
+	 * @param args The arguments the game starts with. The options (optional): '--batch' to execute the commands
+	 *             piped to the standard input, or '--batch=FILE' to execute the commands of a script file,
+	 *             '--level=LEVEL' to set the level of the computer ('normal', 'hard' or 'expert'), '--seed=SEED' to
+	 *             play the same games as a previous session with the same seed, '--game-seed=SEED' to replay
+	 *             the game with the printed seed as the first new game (with the same level and rules).
+	 *             Then the size of the battlefields (e.g. '10x10') and the lengths of the ships
+	 *             (e.g. '4,3x2,2x3,1x4'). Both are optional.
 	 */
 	public static void main(String[] args) {
-		Menu menu = new Menu();
-
-		Scanner in = new Scanner(System.in);
+		// The commands of a script are the same as the answers of the user, one per line.
+		String batch = null;
+		int aiLevel = AI.NORMAL;
+		long seed = new SplittableRandom().nextLong();
+		Long gameSeed = null;
+		int first = 0;
+		GameConfig config;
+		Terminal terminal;
+		try {
+			for (; first < args.length && args[first].startsWith("--"); first++) {
+				if (args[first].startsWith("--batch")) batch = args[first];
+				else if (args[first].startsWith("--level=")) aiLevel = AI.parseLevel(args[first].substring("--level=".length()));
+				else if (args[first].startsWith("--seed=")) seed = Long.parseLong(args[first].substring("--seed=".length()));
+				else if (args[first].startsWith("--game-seed=")) {
+					gameSeed = Long.parseLong(args[first].substring("--game-seed=".length()));
+				}
+				else throw new IllegalArgumentException("Unknown option: " + args[first]);
+			}
+			config = GameConfig.parse(args.length > first ? args[first] : null,
+					args.length > first + 1 ? args[first + 1] : null);
+			if (batch == null) {
+				terminal = Terminal.console();
+			} else if (batch.equals("--batch")) {
+				terminal = Terminal.batch(System.in, System.out);
+			} else if (batch.startsWith("--batch=")) {
+				terminal = Terminal.batch(Files.newInputStream(Paths.get(batch.substring("--batch=".length()))), System.out);
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + batch);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: Menu [--batch[=SCRIPT]] [--level=normal|hard|expert] [--seed=SEED]"
+					+ " [--game-seed=SEED] [ROWSxCOLUMNS] [SHIP LENGTHS, e.g. 4,3x2,2x3,1x4]");
+			return;
+		} catch (IOException | SecurityException e) {
+			System.err.println("The script cannot be read: " + e.getMessage());
+			return;
+		}
+		GameMetrics.get().publish();
+		OpeningHeatmap.load(config);
+		Menu menu = new Menu(config, aiLevel, seed, terminal);
+		if (gameSeed != null) menu.replayGame(gameSeed);
+		try {
+			menu.run();
+		} catch (NoSuchElementException e) {
+			// The script ended without exiting, the game is saved as if the user exited.
+			terminal.println("The input ended.");
+		} finally {
+			menu.close();
+			menu.closeLeaderboard();
+		}
+	}
 
+	/**
+	 * Show the menu to the user until they exit the program.
+	 *
+	 * @throws java.util.NoSuchElementException if the input is closed, e.g. the user disconnected from the server.
+	 */
+	void run() {
 		// Show the menu until the user exits the program in displayMenu()
 		boolean exit = false;
 		while (!exit) {
-            System.out.println();
-
-            // Display the game title
-			System.out.println(LINE_SEPARATOR);
-			System.out.println();
-            for (String line : GAME_TITLE) {
-                System.out.printf("%" + (SPACE_TILL_TITLE + line.length()) + "s", line);
-            }
-			System.out.println(LINE_SEPARATOR);
-			System.out.println();
+			reportScoreWrites(false);
+            terminal.println();
+
+            // Display the game title, but not before every command of a script.
+			if (terminal.isInteractive()) {
+				terminal.println(LINE_SEPARATOR);
+				terminal.println();
+				for (String line : GAME_TITLE) {
+					terminal.printf("%" + (SPACE_TILL_TITLE + line.length()) + "s", line);
+				}
+				terminal.println(LINE_SEPARATOR);
+				terminal.println();
+			}
 
-			exit = menu.displayMenu(in);
+			exit = displayMenu();
 		}
-		System.out.println("Goodbye!");
+		terminal.println("Goodbye!");
+		terminal.flush();
 	}
 	
 	/**
 	 * Display the Main Menu to the user. It contains several options, all of them starts a game function.
 	 * One of them is to exit the program.
 	 * 
-	 * @param in The input stream through the user communicates with the program.
 	 * @return true if the user wants to exit the program.
 	 */
-	private boolean displayMenu(Scanner in) {
+	private boolean displayMenu() {
 		boolean error = false;
 		// Display the menu until there is an error with the input. Valid input will call return in the loop.
 		while (true) {
 			// Display an error message if there was an error.
-			if (error) System.out.println("Valid inputs are numbers listed bellow.");
+			if (error) terminal.println("Valid inputs are numbers listed bellow.");
 
 			// Display the menu options
-			System.out.println();
-			System.out.println("Choose one of the options:");
-			System.out.println(LINE_SEPARATOR);
-			System.out.println("1) New Game");
+			terminal.println();
+			terminal.println("Choose one of the options:");
+			terminal.println(LINE_SEPARATOR);
+			terminal.println("1) New Game");
 			// Display the Load Game option only if there is a saved game.
-			if (hasSavedGame) System.out.println("2) Load Game");
-			System.out.println("3) Leader board");
-			System.out.println("0) Exit");
-			System.out.println(LINE_SEPARATOR);
+			if (hasSavedGame) terminal.println("2) Load Game");
+			terminal.println("3) Leader board");
+			terminal.println("0) Exit");
+			terminal.println(LINE_SEPARATOR);
 
 			// Validate the input from the user.
 			error = false; // Assume there won't be any error
-			if (in.hasNextInt()) {
-				int command = in.nextInt();
-				in.nextLine(); // Take the scanner to the next line after reading the number.
+			if (terminal.hasNextInt()) {
+				int command = terminal.nextInt();
+				terminal.nextLine(); // Take the scanner to the next line after reading the number.
 
-                System.out.println(LINE_SEPARATOR);
+                terminal.println(LINE_SEPARATOR);
 
 				switch (command) {
 					// Exit the game
@@ -180,7 +406,7 @@ public class Menu {
 						return true;
 					// Start a new game
 					case 1:
-						newGame(in);
+						newGame();
 						return  false;
 					// Show the leader board
 					case 3:
@@ -189,7 +415,7 @@ public class Menu {
 					// Load the saved game if there is any
 					case 2:
 						if (hasSavedGame) {
-							loadGame(in);
+							loadGame();
 							return false;
 						}
 					// Display error message in any other case
@@ -197,103 +423,261 @@ public class Menu {
 						error = true;
 				}
 			} else {
-				in.nextLine();
+				terminal.nextLine();
 				error = true;
 			}
-			System.out.println(LINE_SEPARATOR);
+			terminal.println(LINE_SEPARATOR);
 		}
 	}
 
 	/**
 	 * Starts a new game.
-	 * 
-	 * @param in The input stream through the user communicates with the program.
 	 */
-	private void newGame(Scanner in) {
-		game = new GameOfBattleships(this, in);
+	private void newGame() {
+		if (replaySeed != null) {
+			game = new GameOfBattleships(this, terminal, config, aiLevel, replaySeed, true);
+			replaySeed = null;
+		} else {
+			game = new GameOfBattleships(this, terminal, config, aiLevel, seeds.nextLong(), false);
+		}
 		game.play();
 	}
+
+	/**
+	 * Replay an earlier game as the next new game. It gets the seed of the earlier game, and the moves of
+	 * the computer sample all their layouts, so they are the same as in the earlier game, unless one of them ran out
+	 * of its time budget there. (See GameOfBattleships.getSeed())
+	 *
+	 * @param seed The seed of the earlier game.
+	 */
+	void replayGame(long seed) {
+		replaySeed = seed;
+	}
 	
 	/**
 	 * Loads an existing saved game from the disk.
-	 * 
-	 * @param in The input stream through the user communicates with the program.
 	 */
-	private void loadGame(Scanner in) {
-        if (!Files.isReadable(SAVE_PATH)) {
-            System.out.println("Save don't exists");
+	private void loadGame() {
+        if (!Files.isReadable(savePath)) {
+            terminal.println("Save don't exists");
             return;
         }
-        ObjectInputStream savedState = null;
+        List<Object> state = readSavedGame();
+        if (state != null) {
+            // Restore the previous game. It's the current game, so close() closes its save.
+            try {
+                game = GameOfBattleships.restorePreviousGame(this, terminal, state, seeds.nextLong());
+            } catch (IllegalArgumentException e) {
+                terminal.println(e.getMessage());
+                return;
+            }
+            // Fire the shots again which were fired since the game was saved
+            try {
+                int[] shots = SaveJournal.read(saveWriter.getJournalPath(), generation);
+                for (int i = 0; i < shots.length; i += 3) {
+                    if (!game.replayShot(Position.of(shots[i], shots[i + 1], game.getConfig()), shots[i + 2])) {
+                        terminal.println("The saved game is corrupt: a saved shot doesn't match the game.");
+                        return;
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                terminal.println("The saved game is corrupt:\n" + e.getMessage());
+                return;
+            }
+            game.play();
+        }
+	}
 
+	/**
+	 * Read the state of the saved game from the disk.
+	 *
+	 * @return the state of the saved game, or null if it couldn't been read.
+	 */
+	List<Object> readSavedGame() {
         try {
-            // Open the file
-            savedState = new ObjectInputStream(new FileInputStream(SAVE_PATH.toFile()));
-            List<Object> state = new ArrayList<>(((List<Serializable>) savedState.readObject()));
-            // Restore the previous game
-            GameOfBattleships game = GameOfBattleships.restorePreviousGame(this, in, state);
-            game.play();
+            byte[] data = Files.readAllBytes(savePath);
+            if (SaveCodec.isSerialized(data)) {
+                terminal.println("The saved game was saved by an older version of the game, it cannot be loaded."
+                        + " Start a new game to replace it.");
+                return null;
+            }
+            List<Object> state = SaveCodec.decodeGame(data);
+            generation = SaveCodec.decodeGeneration(data);
+            return state;
         }
 
         // Catch the errors
-        catch (IOException | ClassCastException e) {
-            System.err.println("The saved scores are corrupt:\n" + e.getMessage());
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-        }
-        // Close the file
-        finally {
-            if (savedState != null) {
-                try {
-                    savedState.close();
-                } catch (IOException e) {
-                    System.err.println("Error while closing file: " + e.getMessage());
-                }
-            }
+        catch (IOException | SecurityException e) {
+            terminal.println("The saved game is corrupt:\n" + e.getMessage());
         }
+        // Return null if some error occurred.
+        return null;
 	}
 	
 	/**
 	 * Shows the leader board with the top 10 scores from the previous plays.
 	 */
 	private void showLeaderBoard() {
-		List<Score> leaderBoard;
-		if (Files.exists(SCORES_PATH)) {
-			leaderBoard = readScores();
-			if (leaderBoard != null) {
-				for (Score score : leaderBoard) {
-					System.out.println(score.getName() + ": " + score.getScore());
-				}
+		try {
+			for (Score score : getTopScores()) {
+				terminal.println(score.getName() + ": " + score.getScore());
 			}
 		}
+
+		// Catch the errors
+		catch (IOException | SecurityException e) {
+			terminal.println("The saved scores are corrupt:\n" + e.getMessage());
+		}
 	}
 	
 	/**
-	 * Saves the current state of the game.
+	 * Saves the current state of the game, and starts a new, empty journal for the following shots.
+	 * The state is encoded right away, but it's written to the disk in the background. (See isSaved())
 	 *
-     * @param state The state of the game to save.
-	 * @return if the save was successful or not.
+	 * @param rounds The number of rounds the players played.
+	 * @param activePlayer The player who has the turn.
+	 * @param passivePlayer The player who is waiting for its turn.
 	 */
-	public boolean saveGame(List<Serializable> state) {
-		if (!Files.exists(SAVE_PATH)) {
-			SAVE_PATH.toFile().getParentFile().mkdirs();
-		}
-        try (ObjectOutputStream writer = new ObjectOutputStream(new FileOutputStream(SAVE_PATH.toFile()))) {
-            // Save the file
-            writer.writeObject(state);
-            // Return true if there wasn't any error.
-            hasSavedGame = true;
-            return true;
-        } catch (NotSerializableException e) {
-            System.out.println("The state for save is not serializable.");
-        } catch (FileNotFoundException | SecurityException e) {
-            System.err.println("Access denied: " + e.getMessage());
-        } catch (IOException e1) {
-            e1.printStackTrace();
-        }
-        return false;
+	public void saveGame(int rounds, Player activePlayer, Player passivePlayer) {
+		// A new generation, so the journal of the previous save is never replayed on this one.
+		long newGeneration = Math.max(generation + 1, System.currentTimeMillis());
+		saveWriter.submitCheckpoint(newGeneration, SaveCodec.encodeGame(newGeneration, rounds, activePlayer, passivePlayer));
+		generation = newGeneration;
+		journalShots = 0;
+		hasSavedGame = true;
+	}
+
+	/**
+	 * Appends a shot to the journal of the saved game. It's written to the disk in the background. (See isSaved())
+	 *
+	 * @param target The target of the shot.
+	 * @param result The result of the fire on the target.
+	 */
+	public void recordShot(Position target, int result) {
+		saveWriter.submitShot(target.getRow(), target.getColumn(), result);
+		journalShots++;
 	}
 	
+	/**
+	 * Start recording a new game after the ships are placed. If it cannot be recorded, the game goes on without it.
+	 *
+	 * @param first The player who fires first.
+	 * @param second The player who takes the first fire.
+	 */
+	public void startRecording(Player first, Player second) {
+		try {
+			recorder.start(first, second);
+		} catch (IOException | SecurityException e) {
+			stopRecording(e);
+		}
+	}
+
+	/**
+	 * Continue recording a loaded game, if it was recorded until it was saved.
+	 *
+	 * @param activePlayer The player who has the turn.
+	 * @param passivePlayer The player who is waiting for its turn.
+	 */
+	public void resumeRecording(Player activePlayer, Player passivePlayer) {
+		try {
+			recorder.resume(activePlayer, passivePlayer);
+		} catch (IOException | SecurityException e) {
+			stopRecording(e);
+		}
+	}
+
+	/**
+	 * Append a move to the record of the game.
+	 *
+	 * @param target The target of the shot.
+	 * @param result The result of the fire on the target.
+	 */
+	public void recordMove(Position target, int result) {
+		try {
+			recorder.append(target.getRow(), target.getColumn(), result);
+		} catch (IOException | SecurityException e) {
+			stopRecording(e);
+		}
+	}
+
+	/**
+	 * Move the record of the finished game among the records, named after the saved game and its last generation.
+	 */
+	public void finishRecording() {
+		if (!recorder.isRecording()) return;
+		String name = savePath.getFileName().toString();
+		if (name.lastIndexOf('.') > 0) name = name.substring(0, name.lastIndexOf('.'));
+		Path target = savePath.resolveSibling("records").resolve(name + "-" + generation + ".record");
+		try {
+			recorder.archive(target);
+			terminal.println("The game is recorded: " + target);
+		} catch (IOException | SecurityException e) {
+			terminal.println("The record of the game couldn't been saved: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stop recording the game after an error. The game goes on without the record.
+	 *
+	 * @param e The error.
+	 */
+	private void stopRecording(Exception e) {
+		terminal.println("The game cannot be recorded: " + e.getMessage());
+		try {
+			recorder.close();
+		} catch (IOException e1) {
+			// It's already failed.
+		}
+	}
+
+	/**
+	 * Return if the whole game should be saved again instead of appending the next shot to the journal.
+	 * It's true if the journal is already long, or if the last save failed and the journal cannot be trusted.
+	 *
+	 * @return true if the game should be saved again.
+	 */
+	public boolean needsFullSave() {
+		return journalShots >= JOURNAL_COMPACTION_INTERVAL || saveWriter.hasFailed();
+	}
+
+	/**
+	 * Return if everything which was saved is already written to the disk.
+	 *
+	 * @return true if the game is saved.
+	 */
+	public boolean isSaved() {
+		return saveWriter.isDurable();
+	}
+
+	/**
+	 * Return if the last save failed.
+	 *
+	 * @return true if the game couldn't been saved.
+	 */
+	public boolean isSaveFailed() {
+		return saveWriter.hasFailed();
+	}
+
+	/**
+	 * Waits until the game is written to the disk, then closes the journal of the saved game.
+	 * The game stays saved and can be loaded later.
+	 *
+	 * @return if the game is saved or not.
+	 */
+	public boolean closeSavedGame() {
+		try {
+			recorder.close();
+		} catch (IOException e) {
+			terminal.println("Error while closing file: " + e.getMessage());
+		}
+		try {
+			return saveWriter.close();
+		} catch (IOException e) {
+			terminal.println("Error while closing file: " + e.getMessage());
+		}
+		return false;
+	}
+
 	/**
 	 * Deletes the saved game.
 	 * 
@@ -301,7 +685,7 @@ public class Menu {
 	 */
 	public boolean deleteSavedGame() {
 		try {
-			Files.delete(SAVE_PATH);
+			saveWriter.delete();
 			hasSavedGame = false;
 			return true;
 		} catch (NoSuchFileException e) {
@@ -309,97 +693,173 @@ public class Menu {
 			hasSavedGame = false;
 			return true;
 		} catch (DirectoryNotEmptyException e) {
-			System.err.println("Possibly corrupt saved file. The path points to a directory, not a file.\n" + e.getMessage());
+			terminal.println("Possibly corrupt saved file. The path points to a directory, not a file.\n" + e.getMessage());
 		} catch (SecurityException e) {
-			System.err.println("Access denied:\n" + e.getMessage());
+			terminal.println("Access denied:\n" + e.getMessage());
 		} catch (IOException e) {
-			System.err.println("Error during deleting the saved file:\n" + e.getMessage());
+			terminal.println("Error during deleting the saved file:\n" + e.getMessage());
 		}
 		return false; // If there was an error.
 	}
 	
 	/**
-	 * Try to save the a score with the given details to the Leader board.
-	 * The Leader board contains only the top 10 scores. If the new score is not in this
+	 * Save a score to the leader board in the background. Every score is kept, the leader board shows the top 10
+	 * of them. The user is told the rank of the score, or that it couldn't be saved, when the score is written
+	 * and the user is back in the menu. (See reportScoreWrites())
 	 * 
 	 * @param newScore The new score to save.
-	 * @return 	Return false if the System cannot save the score because of some error.
-	 * 			Return true in any other case, even if the score is not in the top 10.
-	 */
-	public boolean saveScore(Score newScore) {
-		List<Score> leaderBoard;
-		// Load the Leader board
-		if (Files.exists(SCORES_PATH)) {
-			leaderBoard = readScores();
-			if (leaderBoard == null) {
-				// Leader board couldn't been loaded
-				return false;
-			}
-		}
-		// If the Leader board not yet exist, create a new one
-		else {
-			leaderBoard = new ArrayList<>(10);
-		}
+	 */
+	public void saveScore(Score newScore) {
+		addToTopScores(newScore);
+		scoreWrites.put(scoreWriter.submit(() -> writeScore(newScore)), newScore);
+	}
 
-		// If the Leader board is empty or the new score is in the top 10, save it.
-		if (leaderBoard.size() == 0 || leaderBoard.size() < 10 || leaderBoard.get(leaderBoard.size() - 1).getScore() < newScore.getScore()) {
-			leaderBoard.add(newScore);
-			leaderBoard = leaderBoard.stream()
-					.sorted(Comparator.comparingInt(Score::getScore).reversed()) // Sort the scores in descending order
-					.limit(10) // Save only the top 10 scores
-					.collect(Collectors.toList());
-			try (ObjectOutputStream writer = new ObjectOutputStream(new FileOutputStream(SCORES_PATH.toFile()))) {
-				// Save the file
-				writer.writeObject(leaderBoard);
-			} catch (FileNotFoundException | SecurityException e) {
-				System.out.println("Access denied: " + e.getMessage());
-				return false;
-			} catch (IOException e1) {
-				e1.printStackTrace();
-				return false;
+	/**
+	 * Tell the user the results of the score writes, in the order of the scores. The user can try to save
+	 * a failed score again, unless the menu is closing.
+	 *
+	 * @param wait True to wait for the writes which are not done yet, e.g. when the menu is closing.
+	 *             Otherwise the results are told only until the first write which is not done yet.
+	 */
+	private void reportScoreWrites(boolean wait) {
+		List<Score> retries = new ArrayList<>();
+		Iterator<Map.Entry<Future<String>, Score>> writes = scoreWrites.entrySet().iterator();
+		while (writes.hasNext()) {
+			Map.Entry<Future<String>, Score> write = writes.next();
+			if (!wait && !write.getKey().isDone()) break;
+			try {
+				terminal.println(write.getKey().get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				String reason = cause instanceof AccessDeniedException || cause instanceof SecurityException
+						? "Access denied: " + cause.getMessage() : cause.getMessage();
+				terminal.println("The score of " + write.getValue().getName() + " couldn't been saved. " + reason);
+				if (!wait) {
+					terminal.println(LINE_SEPARATOR);
+					terminal.println("Would you like to try again? (y/n)");
+					if (terminal.nextLine().toLowerCase().equals("y")) retries.add(write.getValue());
+				}
 			}
+			writes.remove();
 		}
-		// Return true if there wasn't any error.
-		return true;
+		// Submitted after the loop, because they are added to the writes.
+		for (Score score : retries) saveScore(score);
 	}
 
 	/**
-	 * Load the leader board from the disk.
+	 * Return the top scores of the leader board. They are loaded from the disk only the first time,
+	 * or if the leader board was changed by another program since then.
 	 *
-	 * @return the leader board as a list.
+	 * @return the top scores from the best to the worst.
+	 * @throws IOException if the leader board cannot be read.
 	 */
-	private List<Score> readScores() {
-		if (!Files.isReadable(SCORES_PATH)) {
-			return null;
+	private List<Score> getTopScores() throws IOException {
+		synchronized (this) {
+			if (topScores != null && topScoresStamp == leaderboard.getModificationStamp()) return topScores;
+		}
+		// The scores which are being written would be missing from the loaded ones.
+		waitForScores();
+		synchronized (this) {
+			topScoresStamp = leaderboard.getModificationStamp();
+			topScores = new ArrayList<>(leaderboard.getTop(LEADERBOARD_SIZE));
+			return topScores;
 		}
-		ObjectInputStream leaderBoard = null;
+	}
 
-		try {
-			// Open the file
-			leaderBoard = new ObjectInputStream(new FileInputStream(SCORES_PATH.toFile()));
+	/**
+	 * Add a new score to the top scores if they are loaded and the score is among them.
+	 *
+	 * @param newScore The new score.
+	 */
+	private synchronized void addToTopScores(Score newScore) {
+		if (topScores == null) return;
+		// After the equal scores, because they are older.
+		int position = 0;
+		while (position < topScores.size() && topScores.get(position).getScore() >= newScore.getScore()) position++;
+		if (position == LEADERBOARD_SIZE) return;
+		topScores.add(position, newScore);
+		if (topScores.size() > LEADERBOARD_SIZE) topScores.remove(LEADERBOARD_SIZE);
+	}
 
-			return ((List<Score>) leaderBoard.readObject()).stream()
-					.sorted(Comparator.comparingInt(Score::getScore).reversed())
-					.collect(Collectors.toList());
+	/**
+	 * Write a score to the leader board. It runs on the score writer's thread.
+	 *
+	 * @param newScore The score to write.
+	 * @return the message with the rank of the score.
+	 * @throws IOException if the score cannot be written.
+	 */
+	private String writeScore(Score newScore) throws IOException {
+		try {
+			long stamp;
+			long rank;
+			long size;
+			// The stamp belongs to the leader board right before the new score, even if it's shared with other menus.
+			synchronized (leaderboard) {
+				// Equal scores share their rank, so it's the same before and after saving the score.
+				rank = leaderboard.getRank(newScore.getScore());
+				size = leaderboard.size() + 1;
+				stamp = leaderboard.getModificationStamp();
+				leaderboard.add(newScore);
+			}
+			synchronized (this) {
+				// The top scores already contain the new score. If they belong to the leader board before it was
+				// written, they belong to the leader board after it as well, otherwise they are loaded again.
+				if (topScores != null && topScoresStamp == stamp) {
+					topScoresStamp = leaderboard.getModificationStamp();
+				} else {
+					topScores = null;
+				}
+			}
+			return String.format("The score of %s is ranked %d of %d.", newScore.getName(), rank, size);
+		} catch (IOException | SecurityException e) {
+			// The top scores contain the score which is not saved.
+			synchronized (this) {
+				topScores = null;
+			}
+			throw e;
 		}
+	}
 
-		// Catch the errors
-		catch (IOException | ClassCastException e) {
-			System.err.println("The saved scores are corrupt:\n" + e.getMessage());
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
-		}
-		// Close the file
-		finally {
-			if (leaderBoard != null) {
-				try {
-					leaderBoard.close();
-				} catch (IOException e) {
-					System.err.println("Error while closing file: " + e.getMessage());
-				}
+	/**
+	 * Wait until the scores submitted to the score writer are written.
+	 */
+	private void waitForScores() {
+		for (Future<String> write : scoreWrites.keySet()) {
+			try {
+				write.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				// reportScoreWrites() tells the user about the failed writes.
 			}
 		}
-		// Return null if some error occurred.
-		return null;
+	}
+
+	/**
+	 * Write the scores which are still waiting and tell their results, then close the saved game, e.g. when the user
+	 * disconnected from the server.
+	 * The leader board stays open, because it can be shared with other menus.
+	 */
+	void close() {
+		if (game != null) closeSavedGame();
+		reportScoreWrites(true);
+		scoreWriter.shutdown();
+		terminal.flush();
+	}
+
+	/**
+	 * Write the scores which are still waiting, then close the leader board.
+	 */
+	void closeLeaderboard() {
+		waitForScores();
+		try {
+			leaderboard.close();
+		} catch (IOException e) {
+			System.err.println("Error while closing file: " + e.getMessage());
+		}
 	}
 }
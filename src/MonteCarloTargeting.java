@@ -0,0 +1,181 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Chooses targets by sampling random layouts of the opponent's remaining fleet which are consistent with what is
+ * known about its battlefield: no ship is on a missed shot or next to a sunk ship, every hit is covered by a ship
+ * which has not sunk, and the ships don't touch each other. The target is the unknown cell with a ship on it
+ * in the most layouts, by their weights.
+ *
+ * <p>The layouts are generated around the known obstacles and through the hits (see FleetGenerator), so they are
+ * always consistent, but their chances differ from the chances of the opponent's layouts: every ship is chosen
+ * uniformly from its own legal placements, so the layouts whose ships have fewer placements are more likely,
+ * and the obstacles and the hits change the number of placements. So the layouts are weighted by the chance that
+ * the whole fleet, with the sunk ships where they are, is placed like the AI places its fleet on an empty battlefield,
+ * divided by the chance that the layout was generated (importance sampling). The sunk ships count as placed
+ * before the remaining ships of the same length. If the opponent places its fleet like the AI does, the weighted
+ * layouts follow the chances of its consistent layouts as the number of layouts grows.</p>
+ *
+ * <p>The layouts are sampled in chunks, each chunk with its own generator and its own split of the random of
+ * the move, until the time budget of the move runs out or enough layouts are sampled. So a larger budget makes
+ * the choice steadier, but a move never takes much longer than the budget. The chunks are sampled one after
+ * the other on the thread of the move, not on a shared pool: the sessions of the game server and the games of
+ * a simulation already run in parallel, so a move doesn't take the cores of the other games. The choice only depends
+ * on the random of the move, unless the budget runs out before enough layouts are sampled. Without a budget every
+ * move samples all its layouts, so the moves can be replayed from their randoms.</p>
+ */
+public class MonteCarloTargeting {
+
+    /**
+     * The number of layouts sampled by a chunk at most.
+     */
+    private static final int CHUNK_SAMPLES = 1000;
+
+    /**
+     * The number of rows of the opponent's battlefield.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the opponent's battlefield.
+     */
+    private final int columns;
+
+    /**
+     * The time a move can spend on sampling. (nanoseconds) Long.MAX_VALUE if there is no budget.
+     */
+    private final long budget;
+
+    /**
+     * The number of layouts after which the sampling stops before the budget runs out.
+     * The generations which don't find a layout count too.
+     */
+    private final int maxSamples;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param rows The number of rows of the opponent's battlefield.
+     * @param columns The number of columns of the opponent's battlefield.
+     * @param budget The time a move can spend on sampling (nanoseconds), or Long.MAX_VALUE for no budget.
+     * @param maxSamples The number of layouts after which the sampling stops before the budget runs out.
+     */
+    public MonteCarloTargeting(int rows, int columns, long budget, int maxSamples) {
+        this.rows = rows;
+        this.columns = columns;
+        this.budget = budget;
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Choose the next target by sampling layouts consistent with what the map knows.
+     *
+     * @param map What is known about the opponent's battlefield.
+     * @param random Used for sampling the layouts and choosing between the equally good targets.
+     * @return the index of the chosen cell (row * columns + column), or -1 if no consistent layout was found in time.
+     */
+    public int chooseTarget(TargetingMap map, SplittableRandom random) {
+        long deadline = System.nanoTime() + budget;
+        int[] fleet = map.getRemainingFleet();
+        long[] obstacles = new long[BitSets.words(rows * columns)];
+        long[] hits = new long[obstacles.length];
+        map.getObstacles(obstacles);
+        map.getHits(hits);
+
+        // The layout of the whole fleet in the order of placement, the sunk ships before the remaining ones
+        // with the same length. The remaining ships are put on their slots in every sample.
+        int[] allShips = map.getFleet();
+        int[] sunkPlacements = new int[allShips.length];
+        int[] sunkLengths = new int[allShips.length];
+        int sunkCount = map.getSunkShips(sunkPlacements, sunkLengths);
+        int[] layout = new int[allShips.length];
+        int[] slots = new int[fleet.length];
+        int sunk = 0;
+        int slot = 0;
+        for (int i = 0; i < allShips.length; i++) {
+            if (sunk < sunkCount && sunkLengths[sunk] == allShips[i]) {
+                layout[i] = sunkPlacements[sunk++];
+            } else if (slot < slots.length) {
+                slots[slot++] = i;
+            }
+        }
+        // The sunk ships don't match the fleet, so the chances of the layouts are unknown.
+        if (sunk != sunkCount || slot != slots.length) return -1;
+
+        // Every chunk has its own split of the random of the move.
+        int chunks = Math.max(1, (maxSamples + CHUNK_SAMPLES - 1) / CHUNK_SAMPLES);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int i = 0; i < chunks; i++) randoms[i] = random.split();
+        double[] weights = IntStream.range(0, chunks)
+                .mapToObj(chunk -> sample(fleet, allShips, layout.clone(), slots, obstacles, hits,
+                        Math.min(CHUNK_SAMPLES, maxSamples - chunk * CHUNK_SAMPLES), deadline, randoms[chunk]))
+                .reduce(MonteCarloTargeting::merge)
+                .orElseThrow();
+
+        // The cell with the most ships by weight, the last element is the weight of all the layouts.
+        if (weights[rows * columns] == 0) return -1;
+        int best = -1;
+        double bestWeight = 0;
+        int ties = 0;
+        for (int cell = 0; cell < rows * columns; cell++) {
+            if (weights[cell] > bestWeight) {
+                best = cell;
+                bestWeight = weights[cell];
+                ties = 1;
+            } else if (weights[cell] == bestWeight && bestWeight > 0 && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sample a chunk of layouts on the current thread and sum the weights of the layouts with a ship on each cell
+     * which is not a hit.
+     *
+     * @param fleet The lengths of the remaining ships, the longest first.
+     * @param allShips The lengths of all the ships, the longest first.
+     * @param layout The placements of all the ships, the sunk ones are set. It's changed by the chunk.
+     * @param slots The index of each remaining ship in the layout.
+     * @param obstacles The cells which cannot have a ship on them, as a bitset.
+     * @param hits The hits of the ships which have not sunk yet, as a bitset.
+     * @param quota The number of layouts to sample at most.
+     * @param deadline The time when the sampling stops. (See System.nanoTime())
+     * @param random The random of the chunk.
+     * @return the weight of the layouts with a ship on each cell, and the weight of all the layouts as the last element.
+     */
+    private double[] sample(int[] fleet, int[] allShips, int[] layout, int[] slots, long[] obstacles, long[] hits,
+            int quota, long deadline, SplittableRandom random) {
+        double[] weights = new double[rows * columns + 1];
+        // The generators reuse their buffers, so every chunk needs its own.
+        FleetGenerator generator = new FleetGenerator(rows, columns, fleet);
+        FleetGenerator prior = new FleetGenerator(rows, columns, allShips);
+        int[] placements = new int[fleet.length];
+        // Compared by the difference, which is right even if the deadline overflowed without a budget.
+        for (int samples = 0; samples < quota && System.nanoTime() - deadline < 0; samples++) {
+            if (!generator.generate(random, placements, obstacles, hits)) continue;
+            for (int i = 0; i < fleet.length; i++) layout[slots[i]] = placements[i];
+            double weight = Math.exp(prior.computeLogChance(layout) - generator.getLogChance());
+            for (int i = 0; i < fleet.length; i++) {
+                int step = (placements[i] & 1) == 0 ? 1 : columns;
+                for (int j = 0, cell = placements[i] >>> 1; j < fleet[i]; j++, cell += step) {
+                    if (!BitSets.get(hits, cell)) weights[cell] += weight;
+                }
+            }
+            weights[rows * columns] += weight;
+        }
+        return weights;
+    }
+
+    /**
+     * Add the weights of a chunk to the weights of another one.
+     *
+     * @param weights The weights to add to.
+     * @param other The weights to add.
+     * @return the sum of the weights.
+     */
+    private static double[] merge(double[] weights, double[] other) {
+        for (int i = 0; i < weights.length; i++) weights[i] += other[i];
+        return weights;
+    }
+}
@@ -0,0 +1,345 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * The chance of a ship on each cell of an empty battlefield, measured by generating many fleet layouts the way
+ * the AI places its fleet (see FleetGenerator). The AI fires on the most likely cell in its opening, and the most
+ * likely cells are found when the heatmap is loaded, so the first shot of a game is a draw from them instead of
+ * sampling, and it knows that the ships don't touch each other, which the placement density of TargetingMap
+ * doesn't.
+ *
+ * <p>The layouts are generated from a fixed seed in chunks which don't depend on the number of cores, so
+ * a heatmap of the same rules and number of layouts is the same on every machine, and a game replayed from its seed
+ * opens with the same shot. (See GameOfBattleships.getSeed())</p>
+ *
+ * <p>A heatmap is computed once for a size of the battlefields and a fleet, and kept in a small file under the
+ * '.heatmaps' directory, which is memory-mapped when a program starts. The file starts with the magic 'BSH' and
+ * a version byte, then the rules of the game (rows, columns, the number of ships and their lengths) and the number
+ * of layouts, then the number of layouts with a ship on each cell, row by row. Every number is a big-endian int.</p>
+ */
+public final class OpeningHeatmap {
+
+    /**
+     * The first bytes of a heatmap file.
+     */
+    private static final byte[] MAGIC = {'B', 'S', 'H'};
+
+    /**
+     * The version of the heatmap file format. The heatmaps of version 1 were measured from random seeds,
+     * so they are not loaded anymore.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The seed of the random numbers the layouts are generated from. ('BSHEATMP')
+     */
+    private static final long SEED = 0x4253484541544D50L;
+
+    /**
+     * The number of layouts generated by a chunk at most.
+     */
+    private static final int CHUNK_SAMPLES = 10_000;
+
+    /**
+     * The directory of the heatmap files.
+     */
+    private static final Path DIRECTORY = Paths.get(".heatmaps");
+
+    /**
+     * The number of layouts a heatmap is measured from, if it's not given.
+     */
+    public static final int DEFAULT_SAMPLES = 200_000;
+
+    /**
+     * The largest battlefield (in cells) whose missing heatmap is measured at startup.
+     * The heatmaps of larger ones have to be built offline with main().
+     */
+    private static final int MAX_STARTUP_CELLS = 10_000;
+
+    /**
+     * The heatmaps loaded by the program, by the text of their rules. (See GameConfig.toString())
+     */
+    private static final Map<String, OpeningHeatmap> LOADED = new ConcurrentHashMap<>();
+
+    /**
+     * The number of rows of the battlefield.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the battlefield.
+     */
+    private final int columns;
+
+    /**
+     * The number of layouts the heatmap is measured from.
+     */
+    private final int samples;
+
+    /**
+     * The number of layouts with a ship on each cell. It's a view of the mapped file, or of an array.
+     */
+    private final IntBuffer counts;
+
+    /**
+     * The cells with the most layouts with a ship on them, the candidates of the first shot.
+     */
+    private final int[] bestCells;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param rows The number of rows of the battlefield.
+     * @param columns The number of columns of the battlefield.
+     * @param samples The number of layouts the heatmap is measured from.
+     * @param counts The number of layouts with a ship on each cell.
+     */
+    private OpeningHeatmap(int rows, int columns, int samples, IntBuffer counts) {
+        this.rows = rows;
+        this.columns = columns;
+        this.samples = samples;
+        this.counts = counts;
+        int bestCount = -1;
+        int ties = 0;
+        for (int cell = 0; cell < rows * columns; cell++) {
+            int count = counts.get(cell);
+            if (count > bestCount) {
+                bestCount = count;
+                ties = 0;
+            }
+            if (count == bestCount) ties++;
+        }
+        bestCells = new int[ties];
+        for (int cell = 0, i = 0; i < ties; cell++) {
+            if (counts.get(cell) == bestCount) bestCells[i++] = cell;
+        }
+    }
+
+    /**
+     * The entry point of the offline building of a heatmap. It measures the heatmap and writes it to its file.
+     *
+     * @param args The size of the battlefields (e.g. '10x10'), the lengths of the ships (e.g. '4,3x2,2x3,1x4')
+     *             and the number of layouts to measure. All of them are optional.
+     */
+    public static void main(String[] args) {
+        GameConfig config;
+        int samples;
+        try {
+            config = GameConfig.parse(args.length > 0 ? args[0] : null, args.length > 1 ? args[1] : null);
+            samples = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SAMPLES;
+            if (samples < 1) throw new IllegalArgumentException("The number of layouts must be positive: " + samples);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: OpeningHeatmap [ROWSxCOLUMNS] [SHIP LENGTHS, e.g. 4,3x2,2x3,1x4] [LAYOUTS]");
+            return;
+        }
+        long start = System.nanoTime();
+        Path path = DIRECTORY.resolve(fileName(config));
+        try {
+            build(config, samples).write(path, config);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("The heatmap cannot be built: " + e.getMessage());
+            return;
+        }
+        System.out.printf("The heatmap of %s from %d layouts is written to %s in %.1f s.%n", config, samples, path,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Load the heatmap of the given rules for the AIs of the program. If it has no valid file yet, it's measured
+     * and written, unless the battlefield is too large for that. The AIs play without the heatmap if it's not loaded.
+     *
+     * @param config The rules of the games.
+     */
+    public static void load(GameConfig config) {
+        String key = config.toString();
+        if (LOADED.containsKey(key)) return;
+        Path path = DIRECTORY.resolve(fileName(config));
+        if (Files.exists(path)) {
+            try {
+                LOADED.put(key, read(path, config));
+                return;
+            } catch (IOException e) {
+                System.err.println("The opening heatmap cannot be loaded: " + e.getMessage());
+            }
+        }
+        if (config.getCells() > MAX_STARTUP_CELLS) return;
+        try {
+            OpeningHeatmap heatmap = build(config, DEFAULT_SAMPLES);
+            LOADED.put(key, heatmap);
+            heatmap.write(path, config);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("The opening heatmap cannot be built: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Return the loaded heatmap of the given rules.
+     *
+     * @param config The rules of the game.
+     * @return the heatmap, or null if it's not loaded.
+     */
+    public static OpeningHeatmap get(GameConfig config) {
+        return LOADED.get(config.toString());
+    }
+
+    /**
+     * Measure the heatmap of the given rules by generating layouts on all the cores. The heatmap is the same
+     * whenever it's measured from the same number of layouts.
+     *
+     * @param config The rules of the game.
+     * @param samples The number of layouts to generate.
+     * @return the measured heatmap.
+     * @throws IllegalStateException if the fleet doesn't fit on the battlefield.
+     */
+    public static OpeningHeatmap build(GameConfig config, int samples) throws IllegalStateException {
+        int rows = config.getRows();
+        int columns = config.getColumns();
+        int[] fleet = config.getFleet();
+        // The randoms are split here, so a chunk generates the same layouts on whichever thread it runs.
+        int chunks = Math.max(1, (samples + CHUNK_SAMPLES - 1) / CHUNK_SAMPLES);
+        SplittableRandom seeds = new SplittableRandom(SEED);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int i = 0; i < chunks; i++) randoms[i] = seeds.split();
+        int[] counts = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> {
+                    int[] chunkCounts = new int[rows * columns];
+                    // The generator reuses its buffers, so every chunk needs its own.
+                    FleetGenerator generator = new FleetGenerator(rows, columns, fleet);
+                    SplittableRandom random = randoms[chunk];
+                    int[] placements = new int[fleet.length];
+                    for (int i = chunk * CHUNK_SAMPLES, end = Math.min(i + CHUNK_SAMPLES, samples); i < end; i++) {
+                        if (!generator.generate(random, placements)) {
+                            throw new IllegalStateException("The fleet doesn't fit on the battlefield.");
+                        }
+                        for (int ship = 0; ship < fleet.length; ship++) {
+                            int step = (placements[ship] & 1) == 0 ? 1 : columns;
+                            for (int j = 0, cell = placements[ship] >>> 1; j < fleet[ship]; j++, cell += step) {
+                                chunkCounts[cell]++;
+                            }
+                        }
+                    }
+                    return chunkCounts;
+                })
+                .reduce((a, b) -> {
+                    for (int i = 0; i < a.length; i++) a[i] += b[i];
+                    return a;
+                })
+                .orElseThrow();
+        return new OpeningHeatmap(rows, columns, samples, IntBuffer.wrap(counts));
+    }
+
+    /**
+     * Map a heatmap file into the memory.
+     *
+     * @param path The file path of the heatmap.
+     * @param config The rules the heatmap has to belong to.
+     * @return the heatmap.
+     * @throws IOException if the file cannot be read, or it's not the heatmap of the rules.
+     */
+    public static OpeningHeatmap read(Path path, GameConfig config) throws IOException {
+        int headerSize = MAGIC.length + 1 + (4 + config.getFleetSize()) * Integer.BYTES;
+        long size = headerSize + (long) config.getCells() * Integer.BYTES;
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != size) throw new IOException("The heatmap doesn't match the rules: " + path);
+            // The mapping stays valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) throw new IOException("Unknown file format: " + path);
+        }
+        int version = buffer.get();
+        if (version != VERSION) throw new IOException("Unsupported version of the heatmap format: " + version);
+        if (buffer.getInt() != config.getRows() || buffer.getInt() != config.getColumns()
+                || buffer.getInt() != config.getFleetSize()) {
+            throw new IOException("The heatmap doesn't match the rules: " + path);
+        }
+        for (int i = 0; i < config.getFleetSize(); i++) {
+            if (buffer.getInt() != config.getShipLength(i)) {
+                throw new IOException("The heatmap doesn't match the rules: " + path);
+            }
+        }
+        int samples = buffer.getInt();
+        return new OpeningHeatmap(config.getRows(), config.getColumns(), samples, buffer.slice().asIntBuffer());
+    }
+
+    /**
+     * Write the heatmap to a file. It's written to a temporary file first, so a program starting at the same time
+     * never maps a half-written heatmap.
+     *
+     * @param path The file path of the heatmap.
+     * @param config The rules of the heatmap.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path, GameConfig config) throws IOException {
+        int size = MAGIC.length + 1 + (4 + config.getFleetSize() + rows * columns) * Integer.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MAGIC).put((byte) VERSION);
+        buffer.putInt(rows).putInt(columns).putInt(config.getFleetSize());
+        for (int length : config.getFleet()) buffer.putInt(length);
+        buffer.putInt(samples);
+        for (int cell = 0; cell < rows * columns; cell++) buffer.putInt(counts.get(cell));
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryPath, buffer.array());
+            try {
+                Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    /**
+     * Choose an unknown cell from the ones where a ship is the most likely on an empty battlefield. It takes
+     * as many steps as the number of the most likely cells, not the number of the cells of the battlefield.
+     *
+     * @param map What is known about the opponent's battlefield.
+     * @param random Used for choosing between the equally good targets.
+     * @return the index of the chosen cell (row * columns + column), or -1 if none of the most likely cells
+     *         is unknown, e.g. after the opening.
+     */
+    public int chooseTarget(TargetingMap map, SplittableRandom random) {
+        int best = -1;
+        int ties = 0;
+        for (int cell : bestCells) {
+            if (map.isUnknown(cell) && random.nextInt(++ties) == 0) best = cell;
+        }
+        return best;
+    }
+
+    /**
+     * Return the name of the heatmap file of the given rules, e.g. '10x10_4,3x2,2x3,1x4.heat'.
+     * The rules with a long fleet are named by the hash of their text, the file has the rules to check them.
+     *
+     * @param config The rules of the game.
+     * @return the file name.
+     */
+    private static String fileName(GameConfig config) {
+        String key = config.toString().replace(' ', '_');
+        if (key.length() > 100) {
+            key = config.getRows() + "x" + config.getColumns() + "_" + Integer.toHexString(Arrays.hashCode(config.getFleet()));
+        }
+        return key + ".heat";
+    }
+}
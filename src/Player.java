@@ -1,9 +1,6 @@
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
-import java.util.Scanner;
-import java.util.function.Predicate;
 
 /**
  * Represents a player of the Battleship game.
@@ -11,7 +8,7 @@ import java.util.function.Predicate;
  * @author MiklosMayer
  *
  */
-public class Player implements Serializable {
+public class Player {
 
 	/**
 	 * The name of the player.
@@ -29,87 +26,89 @@ public class Player implements Serializable {
 	private int misses;
 
 	/**
-	 * The remaining, not sank fleet of the player.
+	 * The fleet of the player in the order of placement, including the sank ships.
+	 * The battlefield refers to the ships by their index in this list.
 	 */
 	protected final List<Ship> fleet;
 
+	/**
+	 * The number of ships in the fleet which are not yet sank.
+	 */
+	private int remainingShips;
+
 	/**
 	 * The battlefield of the player with its ships placed (after placeShips() was called).
-	 * The first dimension of the array is the rows, and the second dimension is the cells inside the rows.
 	 */
-    protected final Field[][] battlefield;
+    protected final Battlefield battlefield;
+
+	/**
+	 * The rules of the game: the size of the battlefield and the ships of the fleet.
+	 */
+	protected final GameConfig config;
 
 	/**
 	 * The default constructor of the class.
 	 *
 	 * @param name The name of the player.
+	 * @param config The rules of the game: the size of the battlefield and the ships of the fleet.
 	 */
-	public Player(String name) {
+	public Player(String name, GameConfig config) {
 	    this.name = name;
+	    this.config = config;
 		hits = 0;
 		misses = 0;
-		fleet = new ArrayList<>(10);
+		fleet = new ArrayList<>(config.getFleetSize());
+		remainingShips = 0;
 
-		// Fill up the battlefield with empty fields without ships.
-        battlefield = new Field[Menu.NUMBER_OF_ROWS][Menu.NUMBER_OF_COLUMNS];
-		for (int i = 0, battlefieldLength = battlefield.length; i < battlefieldLength; i++) {
-			Field[] row = battlefield[i];
-			for (int j = 0, columnLength = row.length; j < columnLength; j++) {
-				row[j] = new Field(new Position(
-						String.valueOf(Position.calculateColumnIndexFromInteger(j + 1))
-								+ (i + 1)));
-			}
-		}
+		// An empty battlefield without ships.
+        battlefield = new Battlefield(config.getRows(), config.getColumns());
 	}
 
 	/**
 	 * Ask the user where to place their ships and update the displaying in the process.
 	 *
 	 * @param game The current game session. It is used for displaying the updated battlefield.
-	 * @param in The input stream through the user communicates with the program.
+	 * @param terminal The terminal through which the user communicates with the program.
 	 */
-	public void placeShips(GameOfBattleships game, Scanner in) {
+	public void placeShips(GameOfBattleships game, Terminal terminal) {
 		String error = ""; // Used for displaying error messages.
 
-		// Get the input for the 1 x 4 long, 2 x 3 long, 3 x 2 long and 4 x 1 long ships
-		for (int shipLength = 4; shipLength >= 1; shipLength--) {
-			for (int pieces = 5 - shipLength; pieces >= 1; pieces--) {
-				Position position; // Where to place the top-left end of the ship.
-				int direction; // 0: horizontal, 1: vertical
-				boolean valid = false; // Indicate whether the input is valid or not.
-				while (!valid) {
-					// Display the battlefields before every input from the user.
-					game.displayGrids();
-					// If there was an error in the previous iteration of the loop, display it.
-					if (!error.isEmpty()) {
-						System.out.println(error);
-						System.out.println(Menu.LINE_SEPARATOR);
-					}
-					System.out.printf("%s, please place your %s (%d long).\n", name, getShipName(shipLength), shipLength);
-					System.out.println("Where would you like it's top-left end?");
-					System.out.println(Menu.LINE_SEPARATOR);
-					try {
-						position = new Position(in.nextLine());
-						// Only ask for the direction if there wasn't an error while asking for the position (which is caught),
-						// and the ship is longer than 1.
-						if (shipLength > 1) direction = getDirection(in);
-						else direction = 0;
-						// Check if the given place for the ship is allowed or not
-						if (isPlacementAllowed(position, direction, shipLength)) {
-							// Everything's ok, add the new ship.
-							Ship newShip = new Ship(shipLength, position, direction);
-							fleet.add(newShip);
-							updateFieldsWithNewShip(newShip); // Update the player's battlefield
-							error = ""; // There was no error through the current iteration
-							valid = true; // Exit the loop
-						} else {
-							// If the ship's not allowed at the given position, store the error message for the next iteration.
-							error = "You cannot place this ship there. It collides with other ships or stick out from the battlefield.";
-						}
-					} catch (IllegalArgumentException e) {
-						// Error during asking for the position of the ship's top-left
-						error = "Please enter a correct position (like 'B5').";
+		// Get the input for the ships of the fleet from the longest to the shortest
+		for (int ship = 0; ship < config.getFleetSize(); ship++) {
+			int shipLength = config.getShipLength(ship);
+			Position position; // Where to place the top-left end of the ship.
+			int direction; // 0: horizontal, 1: vertical
+			boolean valid = false; // Indicate whether the input is valid or not.
+			while (!valid) {
+				// Display the battlefields before every input from the user.
+				game.displayGrids();
+				// If there was an error in the previous iteration of the loop, display it.
+				if (!error.isEmpty()) {
+					terminal.println(error);
+					terminal.println(Menu.LINE_SEPARATOR);
+				}
+				terminal.printf("%s, please place your %s (%d long).\n", name, getShipName(shipLength), shipLength);
+				terminal.println("Where would you like it's top-left end?");
+				terminal.println(Menu.LINE_SEPARATOR);
+				try {
+					position = Position.parse(terminal.nextLine(), config);
+					// Only ask for the direction if there wasn't an error while asking for the position (which is caught),
+					// and the ship is longer than 1.
+					if (shipLength > 1) direction = getDirection(terminal);
+					else direction = 0;
+					// Check if the given place for the ship is allowed or not
+					if (isPlacementAllowed(position, direction, shipLength)) {
+						// Everything's ok, add the new ship.
+						addShip(new Ship(shipLength, position, direction));
+						error = ""; // There was no error through the current iteration
+						valid = true; // Exit the loop
+					} else {
+						// If the ship's not allowed at the given position, store the error message for the next iteration.
+						error = "You cannot place this ship there. It collides with other ships or stick out from the battlefield.";
 					}
+				} catch (IllegalArgumentException e) {
+					// Error during asking for the position of the ship's top-left
+					error = "Please enter a correct position (like 'B5').";
 				}
 			}
 		}
@@ -124,66 +123,20 @@ public class Player implements Serializable {
 	 * @return true if the ship is allowed to place at the given position.
 	 */
 	protected boolean isPlacementAllowed(Position position, int direction, int length) {
-		// The coordinates of the position inside the grid
-		int x = position.getColumn() - 1;
-		int y = position.getRow() - 1;
-
-		// Check if there is any problem with the placement and return false if so
-
-		// In case the ship is horizontal
-		if (direction == 0) {
-			// If the ship's stick out from the grid, return false
-			if (x + length > Menu.NUMBER_OF_COLUMNS) return false;
-			// Start from 1 before the ship's position horizontally and end 1 after it, but remain inside the grid.
-			for (int row = (y == 0 ? y : y - 1); row <= (y == Menu.NUMBER_OF_ROWS - 1 ? y : y + 1); row++) {
-				// Start from 1 before the ship's position vertically and end 1 after it, but remain inside the grid.
-				for (int column = (x == 0 ? x : x - 1); column < (x + length == Menu.NUMBER_OF_COLUMNS ? x + length : x + length + 1); column++) {
-					if (battlefield[row][column].hasShip()) return false;
-				}
-			}
-		}
-		// In case the ship is vertical
-		else if (direction == 1) {
-			// If the ship's stick out from the grid, return false
-			if (y + length > Menu.NUMBER_OF_ROWS) return false;
-			// Start from before the ship's position vertically, but remain inside the grid.
-			for (int row = (y == 0 ? y : y - 1); row < (y + length == Menu.NUMBER_OF_ROWS ? y + length : y + length + 1); row++) {
-				// Start from 1 before the ship's position horizontally and end 1 after it, but remain inside the grid.
-				for (int column = (x == 0 ? x : x - 1); column <= (x == Menu.NUMBER_OF_COLUMNS - 1 ? x : x + 1); column++) {
-					if (battlefield[row][column].hasShip()) return false;
-				}
-			}
-		}
-		// In case the given direction is invalid
-		else {
-			return false;
-		}
-		// If there wasn't any problem, return true
-		return true;
+		// The battlefield checks the ship's cells and the ones around it in one go.
+		return battlefield.isPlacementFree(position.getRow() - 1, position.getColumn() - 1, direction, length);
 	}
 
 	/**
-	 * Updates the battlefield with the new ship's information
+	 * Adds a new ship to the fleet and updates the battlefield with the new ship's information
 	 *
 	 * @param ship The newly placed ship
 	 */
-	protected void updateFieldsWithNewShip(Ship ship) {
-		// The coordinates of the top-left end of the ship
-		int x = ship.getPosition().getColumn() - 1;
-		int y = ship.getPosition().getRow() - 1;
-
-		// Diverge based on the ship's direction
-		if (ship.getDirection() == 0) {
-			// Update the field at the ship's position and the ones right from it according to its length
-			for (int column = x; column < x + ship.getSize(); column++) {
-				battlefield[y][column].placeShip(ship.getId());
-			}
-		} else if (ship.getDirection() == 1) {
-			// Update the field at the ship's position and the ones below it according to its length
-			for (int row = y; row < y + ship.getSize(); row++) {
-				battlefield[row][x].placeShip(ship.getId());
-			}
-		}
+	protected void addShip(Ship ship) {
+		battlefield.placeShip(ship.getPosition().getRow() - 1, ship.getPosition().getColumn() - 1,
+				ship.getDirection(), ship.getSize(), fleet.size());
+		fleet.add(ship);
+		remainingShips++;
 	}
 
 	/**
@@ -194,6 +147,8 @@ public class Player implements Serializable {
 	 */
 	private String getShipName(int shipLength) {
 		switch (shipLength) {
+			case 5:
+				return "Carrier";
 			case 4:
 				return "Battleship";
 			case 3:
@@ -203,22 +158,22 @@ public class Player implements Serializable {
 			case 1:
 				return "Submarine";
 			default:
-				return "";
+				return "ship";
 		}
 	}
 
 	/**
 	 * Gets the direction of a new ship from the user.
 	 *
-	 * @param in The input stream through the user communicates with the program.
+	 * @param terminal The terminal through which the user communicates with the program.
 	 * @return 0 if the user want horizontal direction and 1 in case of a vertical one.
 	 */
-	private int getDirection(Scanner in) {
+	private int getDirection(Terminal terminal) {
 		char direction;
 		// Continue asking the user until they provide a valid input.
 		while (true) {
-			System.out.println("Would you like it to be horizontal ('h') or vertical ('v')?");
-			String input = in.nextLine();
+			terminal.println("Would you like it to be horizontal ('h') or vertical ('v')?");
+			String input = terminal.nextLine();
 			if (input.length() == 1) {
 				direction = input.charAt(0);
 				if (direction == 'h') {
@@ -227,30 +182,40 @@ public class Player implements Serializable {
 					return 1;
 				}
 			}
-			System.out.println("Not a valid input.");
+			terminal.println("Not a valid input.");
 		}
 	}
 
 	/**
 	 * Ask for coordinates from the active player to fire upon.
 	 *
-	 * @param in The input stream through the user communicates with the program.
+	 * @param terminal The terminal through which the user communicates with the program.
 	 * @return the position of the target.
 	 * @throws InputMismatchException when the input provided by the user is not a coordinate.
 	 * 								  The exception contains the input in its message.
 	 */
-	public Position askCoordinate(Scanner in) throws InputMismatchException {
-        System.out.println(name + ", what is your target? (e.g. 'A1')");
-        System.out.println(Menu.LINE_SEPARATOR);
-        String input = in.nextLine();
-        System.out.println(Menu.LINE_SEPARATOR);
+	public Position askCoordinate(Terminal terminal) throws InputMismatchException {
+        terminal.println(name + ", what is your target? (e.g. 'A1')");
+        terminal.println(Menu.LINE_SEPARATOR);
+        String input = terminal.nextLine();
+        terminal.println(Menu.LINE_SEPARATOR);
         try {
-            return new Position(input);
+            return Position.parse(input, config);
         } catch (IllegalArgumentException e) {
             throw new InputMismatchException(input);
         }
 	}
 
+	/**
+	 * Register the result of a fire committed by the player.
+	 * The human player keeps track of its fires on the displayed battlefields, so it does nothing.
+	 *
+	 * @param target The position the player fired upon.
+	 * @param result The result of the fire. 0: missed, 1: hit, 2: hit and sank.
+	 */
+	public void registerFireResult(Position target, int result) {
+	}
+
 	/**
 	 * Register a fire from the other player.
 	 *
@@ -261,34 +226,28 @@ public class Player implements Serializable {
 	 * 			 2 if the fire hit and the ship's sunk.
 	 */
 	public int takeFire(Position target) {
-		Field field = battlefield[target.getRow() - 1][target.getColumn() - 1];
+		int row = target.getRow() - 1;
+		int column = target.getColumn() - 1;
 		// Return -1 if the field is already been fired
-		if (field.isFired()) {
+		if (battlefield.isFired(row, column)) {
 			return -1;
 		}
+		battlefield.fire(row, column);
 		// Return 0 if the field has no ship on it
-		else if (!field.hasShip()) {
-			field.takeFire(false);
+		if (!battlefield.hasShip(row, column)) {
 			return 0;
 		} else {
 			// Find the ship which was fired upon
-			Predicate<Ship> condition = ship -> ship.getId() == field.getShipId();
-			Ship attacked = fleet.stream()
-					.filter(condition)
-					.findAny()
-					.orElse(null);
-			if (attacked == null) {
-				throw new IllegalArgumentException("The position contains a wrong ship id: " + target);
-			}
-			// Register the fire on the ship
-			attacked.takeHit();
-			field.takeFire(attacked.getSankPercent() == 100);
+			Ship attacked = fleet.get(battlefield.getShipIndex(row, column));
+			// Register the fire on the segment of the ship
+			Position start = attacked.getPosition();
+			int segment = attacked.getDirection() == 0 ? column - (start.getColumn() - 1) : row - (start.getRow() - 1);
 			// Return 1 if the ship's not yet sunk
-			if (attacked.getSankPercent() != 100) {
+			if (!attacked.takeHit(segment)) {
 				return 1;
 			} else {
-				// Return 2 if the ship sank and remove it from the fleet.
-				fleet.removeIf(condition);
+				// Return 2 if the ship sank.
+				remainingShips--;
 				sinkShip(attacked);
 				return 2;
 			}
@@ -301,22 +260,17 @@ public class Player implements Serializable {
 	 * @param ship which has sunk.
 	 */
 	private void sinkShip(Ship ship) {
-		// The coordinates of the top-left end of the ship
-		int x = ship.getPosition().getColumn() - 1;
-		int y = ship.getPosition().getRow() - 1;
+		battlefield.sinkShip(ship.getPosition().getRow() - 1, ship.getPosition().getColumn() - 1,
+				ship.getDirection(), ship.getSize());
+	}
 
-		// Diverge based on the ship's direction
-		if (ship.getDirection() == 0) {
-			// Update the field at the ship's position and the ones right from it according to its length
-			for (int column = x; column < x + ship.getSize(); column++) {
-				battlefield[y][column].takeFire(true);
-			}
-		} else if (ship.getDirection() == 1) {
-			// Update the field at the ship's position and the ones below it according to its length
-			for (int row = y; row < y + ship.getSize(); row++) {
-				battlefield[row][x].takeFire(true);
-			}
-		}
+	/**
+	 * Return the number of ships in the fleet which are not yet sank.
+	 *
+	 * @return the number of remaining ships.
+	 */
+	public int getRemainingShips() {
+		return remainingShips;
 	}
 
 	/**
@@ -344,6 +298,15 @@ public class Player implements Serializable {
 		hits++;
 	}
 
+	/**
+	 * Return the rules of the game the player plays.
+	 *
+	 * @return the rules of the game.
+	 */
+	public GameConfig getConfig() {
+		return config;
+	}
+
 	/**
 	 * Return the number of fires committed by the player which did not hit a ship.
 	 *
@@ -361,31 +324,37 @@ public class Player implements Serializable {
 	}
 
 	/**
-	 * Return a row of displayable data about the player's battlefield.
+	 * Set the number of hits and misses of the player while restoring a saved game.
 	 *
-	 * @param rowIndex The index of the row to get data from.
-	 * @return The array of displayable data as characters.
+	 * @param hits The number of hits by the player.
+	 * @param misses The number of misses by the player.
 	 */
-	public Character[] getBattlefieldData(int rowIndex) {
-		Character[] data = new Character[Menu.NUMBER_OF_COLUMNS];
-
-		Field[] row = battlefield[rowIndex];
-		for (int i = 0, columnLength = row.length; i < columnLength; i++) {
-			Field field = row[i];
+	void restoreStatistics(int hits, int misses) {
+		this.hits = hits;
+		this.misses = misses;
+	}
 
-			// Fill up the data array based on the fields' status
+	/**
+	 * Fill the given buffer with a row of displayable data about the player's battlefield.
+	 * The buffer is owned by the caller, so it can be reused for every row and every frame.
+	 *
+	 * @param rowIndex The index of the row to get data from.
+	 * @param data The buffer of the displayable data of the row's cells. Its length is at least the number of columns.
+	 */
+	public void getBattlefieldData(int rowIndex, char[] data) {
+		for (int i = 0; i < config.getColumns(); i++) {
+			// Fill up the data array based on the cells' status
 			char c;
-			if (field.hasShip()) {
-				if (field.isSank()) c = Menu.SANK_SHIP;
-				else if (field.isFired()) c = Menu.HIT;
+			if (battlefield.hasShip(rowIndex, i)) {
+				if (battlefield.isSank(rowIndex, i)) c = Menu.SANK_SHIP;
+				else if (battlefield.isFired(rowIndex, i)) c = Menu.HIT;
 				else c = Menu.SHIP;
 			} else {
-				if (field.isFired()) c = Menu.MISSED_SHOT;
+				if (battlefield.isFired(rowIndex, i)) c = Menu.MISSED_SHOT;
 				else c = ' ';
 			}
 
 			data[i] = c;
 		}
-		return data;
     }
 }
@@ -1,128 +1,167 @@
-import java.io.Serializable;
-
 /**
  * Represents a position in the battlefield.
+ * The columns are named with letters like in a spreadsheet: A to Z, then AA, AB and so on.
+ * Every position of a battlefield size has one shared instance (see PositionTable), they are created with
+ * the static methods of the class, which don't allocate anything.
  */
-public class Position implements Serializable {
+public class Position {
 
     /**
      * The row-index of the position
      */
-    private int row;
+    private final int row;
 
     /**
      * The column-index of the position
      */
-    private int column;
+    private final int column;
+
+    /**
+     * Default constructor of the class. Only the position table creates positions.
+     *
+     * @param row The row-index of the position, starting from 1.
+     * @param column The column-index of the position, starting from 1.
+     */
+	Position(int row, int column) {
+		this.row = row;
+		this.column = column;
+	}
 
     /**
-     * Default constructor of the class
+     * Parse a position from its text representation.
      *
-     * @param position The String representation of the position on the Battlefield.
-     *                 Its first character should be the column with a letter, not case sensitive.
-     *                 The second (or second and third) character(s) should be a number.
+     * @param position The text representation of the position on the Battlefield.
+     *                 It should start with the column's letter(s), not case sensitive,
+     *                 followed by the row's number.
+     * @param config The rules of the game, which tell the size of the battlefield.
+     * @return the shared instance of the position.
      * @throws IllegalArgumentException if the position argument not in the correct format (e.g. 'A8')
+     *                                  or it's not on the battlefield.
      */
-	public Position(String position) throws IllegalArgumentException {
-		position = position.toUpperCase();
-		char[] coordinates = position.toCharArray();
-		if (validatePosition(coordinates)) {
-			column = calculateColumn(coordinates);
-			row = calculateRow(coordinates);
-		} else {
+	public static Position parse(CharSequence position, GameConfig config) throws IllegalArgumentException {
+		int letters = 0;
+		while (letters < position.length() && Character.isLetter(position.charAt(letters))) letters++;
+		int column = calculateColumn(position, letters);
+		int row = calculateRow(position, letters);
+		if (!validateColumn(column, config) || !validateRow(row, config)) {
 			throw new IllegalArgumentException("Illegal argument for position: " + position);
 		}
+		return config.getPositions().get(row, column);
 	}
 
 	/**
-	 * Calculate the character which represents the column-index of a position.
-	 * The valid indexes start from 1 and ends at {@code Menu.NUMBER_OF_COLUMNS}
+	 * Return a position from its row-index and column-index.
 	 *
-	 * @param i the index of the column to calculate from.
-	 * @return the character which represents the given index.
-	 * If the index is not in the valid range it returns ' ' (space).
+	 * @param row The row-index of the position, between 1 and the number of rows.
+	 * @param column The column-index of the position, between 1 and the number of columns.
+	 * @param config The rules of the game, which tell the size of the battlefield.
+	 * @return the shared instance of the position.
+	 * @throws IllegalArgumentException if the position is not on the battlefield.
 	 */
-	public static char calculateColumnIndexFromInteger(int i) {
-		if (i <= 0 || i > Menu.NUMBER_OF_COLUMNS) return ' ';
-		return (char) (i + 'A' - 1);
+	public static Position of(int row, int column, GameConfig config) throws IllegalArgumentException {
+		if (!validateRow(row, config) || !validateColumn(column, config)) {
+			throw new IllegalArgumentException("Illegal argument for position: row " + row + ", column " + column);
+		}
+		return config.getPositions().get(row, column);
 	}
 
-    /**
-     * Validate if the input is in the correct format.
-     *
-     * @param input to validate
-     * @return true if the input is correctly validated.
-     */
-	private boolean validatePosition(char[] input) {
-		return validateInputLength(input) && validateRow(input) && validateColumn(input);
+	/**
+	 * Return a position from the index of its cell.
+	 *
+	 * @param cell The index of the cell (row * columns + column), starting from 0.
+	 * @param config The rules of the game, which tell the size of the battlefield.
+	 * @return the shared instance of the position.
+	 * @throws IllegalArgumentException if the position is not on the battlefield.
+	 */
+	public static Position ofCell(int cell, GameConfig config) throws IllegalArgumentException {
+		if (cell < 0 || cell >= config.getCells()) {
+			throw new IllegalArgumentException("Illegal argument for position: cell " + cell);
+		}
+		return config.getPositions().get(cell / config.getColumns() + 1, cell % config.getColumns() + 1);
 	}
 
-    /**
-     * Validate if the input's length is correct.
-     *
-     * @param input to validate.
-     * @return true if the length is within the appropriate limits.
-     */
-	private boolean validateInputLength(char[] input) {
-		return input.length >= 2 && input.length <= 3;
+	/**
+	 * Calculate the letters which represent the column-index of a position.
+	 * The valid indexes start from 1, e.g. 1 is 'A', 26 is 'Z', 27 is 'AA'.
+	 *
+	 * @param i the index of the column to calculate from.
+	 * @return the letters which represent the given index.
+	 * If the index is not positive it returns an empty String.
+	 */
+	public static String calculateColumnIndexFromInteger(int i) {
+		if (i <= 0) return "";
+		char[] letters = new char[7];
+		int start = letters.length;
+		while (i > 0) {
+			i--;
+			letters[--start] = (char) ('A' + i % 26);
+			i /= 26;
+		}
+		return new String(letters, start, letters.length - start);
 	}
 
     /**
-     * Validate the character which represents the column-index of the position.
+     * Validate the column-index of the position.
      *
-     * @param input to validate.
-     * @return true if the column-index is correct.
+     * @param column to validate.
+     * @param config The rules of the game, which tell the size of the battlefield.
+     * @return true if the column-index is on the battlefield.
      */
-	private boolean validateColumn(char[] input) {
-		if (!validateInputLength(input)) return false;
-		int column = calculateColumn(input);
-		return column > 0 && column <= Menu.NUMBER_OF_COLUMNS;
+	private static boolean validateColumn(int column, GameConfig config) {
+		return column > 0 && column <= config.getColumns();
 	}
 
     /**
-     * Validate the character(s) which represents the row-index of the position.
+     * Validate the row-index of the position.
      *
-     * @param input to validate
-     * @return true if the row-index is correct.
+     * @param row to validate
+     * @param config The rules of the game, which tell the size of the battlefield.
+     * @return true if the row-index is on the battlefield.
      */
-	private boolean validateRow(char[] input) {
-		if (!validateInputLength(input)) return false;
-		int row;
-		try {
-			row = calculateRow(input);
-		} catch (NumberFormatException e) {
-			return false;
-		}
-		return row > 0 && row <= Menu.NUMBER_OF_ROWS;
+	private static boolean validateRow(int row, GameConfig config) {
+		return row > 0 && row <= config.getRows();
 	}
 
     /**
-     * Calculate the row-index from the character which represents it.
+     * Calculate the column-index from the letters which represent it.
      *
      * @param input to calculate from
-     * @return the row-index of the position.
+     * @param letters The number of letters at the beginning of the input.
+     * @return the column-index of the position, or -1 if there is no letter or too many of them.
      */
-	private int calculateColumn(char[] input) {
-		return input[0] - 'A' + 1;
+	private static int calculateColumn(CharSequence input, int letters) {
+		if (letters == 0 || letters > 3) return -1;
+		int column = 0;
+		for (int i = 0; i < letters; i++) {
+			char c = Character.toUpperCase(input.charAt(i));
+			if (c < 'A' || c > 'Z') return -1;
+			column = column * 26 + c - 'A' + 1;
+		}
+		return column;
 	}
 
     /**
-     * Calculate the column-index from the character(s) which represents them.
+     * Calculate the row-index from the digits which represent it.
      *
      * @param input to calculate from
-     * @return the column-index of the position.
+     * @param letters The number of letters before the digits.
+     * @return the row-index of the position, or -1 if the rest of the input is not a number or too long.
      */
-	private int calculateRow(char[] input) {
-		try {
-			return Integer.parseInt(new String(input, 1, input.length - 1));
-		} catch (NumberFormatException e) {
-			return -1;
+	private static int calculateRow(CharSequence input, int letters) {
+		int digits = input.length() - letters;
+		if (digits == 0 || digits > 5) return -1;
+		int row = 0;
+		for (int i = letters; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c < '0' || c > '9') return -1;
+			row = row * 10 + c - '0';
 		}
+		return row;
 	}
 
     /**
 	 * Return which row the position is in.
-	 * The valid indexes start from 1 and ends at {@code Menu.NUMBER_OF_ROWS}
+	 * The valid indexes start from 1 and ends at the number of rows.
 	 *
      * @return the row-index of the position.
      */
@@ -132,11 +171,16 @@ public class Position implements Serializable {
 
     /**
 	 * Return which column the position is in.
-	 * The valid indexes start from 1 and ends at {@code Menu.NUMBER_OF_COLUMNS}
+	 * The valid indexes start from 1 and ends at the number of columns.
 	 *
      * @return the column-index of the position.
      */
 	public int getColumn() {
 		return column;
 	}
+
+	@Override
+	public String toString() {
+		return calculateColumnIndexFromInteger(column) + row;
+	}
 }
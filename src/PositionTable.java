@@ -0,0 +1,69 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The shared instances of the positions of a battlefield size. Every position of a battlefield has one instance,
+ * which is created with its row the first time the row is needed, so a large battlefield doesn't cost anything
+ * until it's used. The table is shared by every game with the same battlefield size. It's thread-safe: a row is
+ * complete before it's published, and only the first published instance of a row is ever returned.
+ */
+public final class PositionTable {
+
+    /**
+     * The tables by the size of the battlefield (rows * MAX_DIMENSION + columns).
+     */
+    private static final ConcurrentMap<Integer, PositionTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * The number of columns of the battlefield.
+     */
+    private final int columns;
+
+    /**
+     * The positions row by row. A row is created when one of its positions is needed first, and it's not changed
+     * after it's published.
+     */
+    private final AtomicReferenceArray<Position[]> positions;
+
+    /**
+     * Create an empty table.
+     *
+     * @param rows The number of rows of the battlefield.
+     * @param columns The number of columns of the battlefield.
+     */
+    private PositionTable(int rows, int columns) {
+        this.columns = columns;
+        positions = new AtomicReferenceArray<>(rows);
+    }
+
+    /**
+     * Return the table of a battlefield size.
+     *
+     * @param rows The number of rows of the battlefield.
+     * @param columns The number of columns of the battlefield.
+     * @return the shared table of the size.
+     */
+    public static PositionTable forSize(int rows, int columns) {
+        return TABLES.computeIfAbsent(rows * GameConfig.MAX_DIMENSION + columns,
+                size -> new PositionTable(rows, columns));
+    }
+
+    /**
+     * Return the shared instance of a position. The position must be on the battlefield.
+     *
+     * @param row The row-index of the position, starting from 1.
+     * @param column The column-index of the position, starting from 1.
+     * @return the position.
+     */
+    public Position get(int row, int column) {
+        Position[] cells = positions.get(row - 1);
+        if (cells == null) {
+            cells = new Position[columns];
+            for (int i = 0; i < columns; i++) cells[i] = new Position(row, i + 1);
+            // If another thread published the row first, its positions are the shared ones.
+            if (!positions.compareAndSet(row - 1, null, cells)) cells = positions.get(row - 1);
+        }
+        return cells[column - 1];
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Plays a recorded game again move by move by the rules of the Player class, e.g. for a post-mortem of a game
+ * or to build a data set from many games. Every move is checked: the target must be on the battlefield and not
+ * fired upon, the result must be what the rules give, and the game must not go on after a fleet sank.
+ * The replay can seek to any turn, backwards by playing the game again from its beginning.
+ */
+public class Replay {
+
+    /**
+     * The recorded game.
+     */
+    private final GameRecord record;
+
+    /**
+     * The players of the game in the order of the record, player 0 fired first.
+     */
+    private final Player[] players;
+
+    /**
+     * The number of moves played.
+     */
+    private int turn;
+
+    /**
+     * The number of the player who fires next.
+     */
+    private int shooter;
+
+    /**
+     * The default constructor of the class. The fleets are placed, but no move is played yet.
+     *
+     * @param record The recorded game.
+     * @throws IllegalArgumentException if a ship of the record is not allowed where it's placed.
+     */
+    public Replay(GameRecord record) throws IllegalArgumentException {
+        this.record = record;
+        players = new Player[2];
+        reset();
+    }
+
+    /**
+     * The entry point of the replay. It checks a recorded game and shows the battlefields at a turn.
+     *
+     * @param args The file path of the record and the turn to show (optional, by default the end of the game).
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: Replay RECORD [TURN]");
+            return;
+        }
+        GameRecord record;
+        Replay replay;
+        try {
+            record = SaveCodec.decodeRecord(Files.readAllBytes(Paths.get(args[0])));
+            replay = new Replay(record);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("The record cannot be read: " + e.getMessage());
+            return;
+        }
+        System.out.printf("%s: %s vs %s, %d moves.%n", record.getConfig(), record.getName(0), record.getName(1),
+                record.getMoves());
+
+        String error = replay.verify();
+        System.out.println(error == null ? "Every move follows the rules." : "Invalid move: " + error);
+
+        int turn = record.getMoves();
+        if (args.length > 1) {
+            try {
+                turn = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println("The turn is not a number: " + args[1]);
+                return;
+            }
+        }
+        try {
+            replay.seek(turn);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        System.out.printf("After move %d, %s has the turn:%n", replay.getTurn(), replay.getShooter().getName());
+        new GridRenderer(record.getConfig()).render(System.out, replay.getPlayer(0), replay.getPlayer(1));
+    }
+
+    /**
+     * Play the next move.
+     *
+     * @return false if every move is played.
+     * @throws IllegalArgumentException if the move doesn't follow the rules. The replay stays before the move.
+     */
+    public boolean step() throws IllegalArgumentException {
+        if (turn == record.getMoves()) return false;
+        Player target = players[1 - shooter];
+        if (target.getRemainingShips() == 0) {
+            throw new IllegalArgumentException("Move " + turn + " is after the end of the game.");
+        }
+        int cell = record.getTarget(turn);
+        if (cell >= record.getConfig().getCells()) {
+            throw new IllegalArgumentException("Move " + turn + " targets a cell outside of the battlefield: " + cell);
+        }
+        int result = target.takeFire(Position.ofCell(cell, record.getConfig()));
+        if (result < 0) {
+            throw new IllegalArgumentException("Move " + turn + " targets a cell which was already fired upon: "
+                    + Position.ofCell(cell, record.getConfig()));
+        }
+        // The fire cannot be taken back, so the replay is played again until the previous move.
+        if (result != record.getResult(turn)) {
+            int invalid = turn;
+            seek(invalid);
+            throw new IllegalArgumentException("Move " + invalid + " has the result " + record.getResult(invalid)
+                    + " instead of " + result + ".");
+        }
+        Player player = players[shooter];
+        if (result == 0) {
+            player.increaseMisses();
+            shooter = 1 - shooter;
+        } else {
+            player.increaseHits();
+        }
+        turn++;
+        return true;
+    }
+
+    /**
+     * Go to a turn of the game. Going forward plays the moves after the current turn,
+     * going backward plays the game again from its beginning.
+     *
+     * @param turn The number of moves played at the turn.
+     * @throws IllegalArgumentException if the turn is not in the game, or a move before it doesn't follow the rules.
+     */
+    public void seek(int turn) throws IllegalArgumentException {
+        if (turn < 0 || turn > record.getMoves()) {
+            throw new IllegalArgumentException("The game has no turn " + turn + ", it has " + record.getMoves() + " moves.");
+        }
+        if (turn < this.turn) reset();
+        while (this.turn < turn) step();
+    }
+
+    /**
+     * Play the moves after the current turn and check them.
+     *
+     * @return null if every move follows the rules, otherwise the error of the first invalid move.
+     */
+    public String verify() {
+        try {
+            while (step()) {
+                // Every move is checked by step()
+            }
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Return the number of moves played.
+     *
+     * @return the current turn.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Return a player of the game with their battlefield at the current turn.
+     *
+     * @param number The number of the player, 0 or 1. Player 0 fired first.
+     * @return the player.
+     */
+    public Player getPlayer(int number) {
+        return players[number];
+    }
+
+    /**
+     * Return the player who fires next.
+     *
+     * @return the player who has the turn.
+     */
+    public Player getShooter() {
+        return players[shooter];
+    }
+
+    /**
+     * Return the record of the game.
+     *
+     * @return the recorded game.
+     */
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * Go back to the beginning of the game: place the fleets and forget the moves.
+     *
+     * @throws IllegalArgumentException if a ship of the record is not allowed where it's placed.
+     */
+    private void reset() throws IllegalArgumentException {
+        GameConfig config = record.getConfig();
+        for (int number = 0; number < 2; number++) {
+            Player player = new Player(record.getName(number), config);
+            for (int ship = 0; ship < config.getFleetSize(); ship++) {
+                int placement = record.getPlacement(number, ship);
+                int cell = placement >>> 1;
+                Position position = cell < config.getCells() ? Position.ofCell(cell, config) : null;
+                int length = config.getShipLength(ship);
+                if (position == null || !player.isPlacementAllowed(position, placement & 1, length)) {
+                    throw new IllegalArgumentException("A ship of " + record.getName(number)
+                            + " collides with another ship or sticks out from the battlefield.");
+                }
+                player.addShip(new Ship(length, position, placement & 1));
+            }
+            players[number] = player;
+        }
+        turn = 0;
+        shooter = 0;
+    }
+}
@@ -0,0 +1,654 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes the saved games and the recorded games into a compact, versioned binary format, and decodes them and the
+ * leader boards of the old format.
+ *
+ * <p>Every file starts with a 3 byte magic and a version byte. The numbers are written as variable length integers
+ * (7 bits per byte, the highest bit marks that another byte follows), the texts as their UTF-8 length and bytes.
+ * A saved game contains the generation of the save, the rules of the game (the size of the battlefields and the
+ * lengths of the ships, version 1 had only the classic fleet), the number of rounds and the two players, the one who
+ * has the turn first. A player is written as:</p>
+ * <ul>
+ *     <li>its kind (0: human, 1: computer), the level of the computer (since version 3), its name, hits and misses,</li>
+ *     <li>its fleet in the order of placement: the length of each ship and its top-left cell and direction
+ *         ((row * columns + column) * 2 + direction),</li>
+ *     <li>the cells of its battlefield which were fired upon, one bit per cell.</li>
+ * </ul>
+ * Everything else (the hits of the ships, the sank ships, what the computer knows about its opponent) follows from
+ * these, so it's rebuilt while decoding instead of being saved.
+ *
+ * <p>A recorded game contains the rules of the game, then the two players, the one who fires first: their kind,
+ * name and the placement of their fleet. It's followed by the moves until the end of the file, each of them is
+ * a variable length integer of the target cell and the result of the fire ((row * columns + column) * 4 + result),
+ * usually two bytes.</p>
+ *
+ * <p>The versions before this codec wrote the saved games and the leader board with Java serialization. Such a leader
+ * board is still decoded, so its scores are imported, but such a saved game is only recognised (see isSerialized()),
+ * because the classes it was written from don't exist anymore.</p>
+ */
+public final class SaveCodec {
+
+    /**
+     * The first bytes of a saved game.
+     */
+    private static final byte[] GAME_MAGIC = {'B', 'S', 'G'};
+
+    /**
+     * The first bytes of a saved leader board.
+     */
+    private static final byte[] SCORES_MAGIC = {'B', 'S', 'S'};
+
+    /**
+     * The first bytes of a recorded game.
+     */
+    private static final byte[] RECORD_MAGIC = {'B', 'S', 'R'};
+
+    /**
+     * The first bytes of the files written with Java serialization by the versions before this codec.
+     */
+    private static final byte[] SERIALIZATION_MAGIC = {(byte) 0xAC, (byte) 0xED};
+
+    /**
+     * Allows only the classes a leader board written with Java serialization contains: the list of the scores
+     * (and the array the list checks its size with) and the scores.
+     */
+    private static final ObjectInputFilter SERIALIZED_SCORES_FILTER = info -> {
+        Class<?> type = info.serialClass();
+        if (type == null || type == ArrayList.class || type == Object[].class || type == Score.class) {
+            return info.depth() <= 3 ? ObjectInputFilter.Status.UNDECIDED : ObjectInputFilter.Status.REJECTED;
+        }
+        return ObjectInputFilter.Status.REJECTED;
+    };
+
+    /**
+     * The version of the saved game format which is written.
+     */
+    private static final int GAME_VERSION = 3;
+
+    /**
+     * The last version of the old leader board format.
+     */
+    private static final int SCORES_VERSION = 1;
+
+    /**
+     * The version of the recorded game format which is written.
+     */
+    private static final int RECORD_VERSION = 1;
+
+    /**
+     * The maximum size of an encoded move. (bytes)
+     */
+    public static final int MAX_MOVE_SIZE = 5;
+
+    /**
+     * The kind of a player controlled by a user.
+     */
+    private static final int HUMAN = 0;
+
+    /**
+     * The kind of a player controlled by the computer.
+     */
+    private static final int COMPUTER = 1;
+
+    /**
+     * It's a utility class, it shouldn't be instantiated.
+     */
+    private SaveCodec() {
+    }
+
+    /**
+     * Encode the state of a game.
+     *
+     * @param generation The generation of the save.
+     * @param rounds The number of rounds the players played.
+     * @param activePlayer The player who has the turn.
+     * @param passivePlayer The player who is waiting for its turn.
+     * @return the encoded game.
+     */
+    public static byte[] encodeGame(long generation, int rounds, Player activePlayer, Player passivePlayer) {
+        GameConfig config = activePlayer.getConfig();
+        Output out = new Output(64 + config.getFleetSize() * 8 + BitSets.words(config.getCells()) * 16);
+        out.writeBytes(GAME_MAGIC);
+        out.writeByte(GAME_VERSION);
+        out.writeVarLong(generation);
+        out.writeVarInt(config.getRows());
+        out.writeVarInt(config.getColumns());
+        out.writeVarInt(config.getFleetSize());
+        for (int i = 0; i < config.getFleetSize(); i++) {
+            out.writeVarInt(config.getShipLength(i));
+        }
+        out.writeVarInt(rounds);
+        writePlayer(out, activePlayer);
+        writePlayer(out, passivePlayer);
+        return out.toByteArray();
+    }
+
+    /**
+     * Read the generation of an encoded game without decoding the rest of it.
+     *
+     * @param data The encoded game.
+     * @return the generation of the save.
+     * @throws IOException if the data is not a saved game or its version is not supported.
+     */
+    public static long decodeGeneration(byte[] data) throws IOException {
+        Input in = new Input(data);
+        in.readHeader(GAME_MAGIC, GAME_VERSION);
+        return in.readVarLong();
+    }
+
+    /**
+     * Decode the state of a game.
+     *
+     * @param data The encoded game.
+     * @return the state of the game: the number of rounds, the player who has the turn
+     *         and the player who is waiting for its turn.
+     * @throws IOException if the data is not a valid saved game.
+     */
+    public static List<Object> decodeGame(byte[] data) throws IOException {
+        Input in = new Input(data);
+        int version = in.readHeader(GAME_MAGIC, GAME_VERSION);
+        in.readVarLong();
+        GameConfig config = readConfig(in, version);
+        int rounds = in.readVarInt();
+        Player activePlayer = readPlayer(in, config, version);
+        Player passivePlayer = readPlayer(in, config, version);
+        if (!in.isEnd()) throw new IOException("Unexpected data after the saved game.");
+
+        // The computer's knowledge about its opponent is not saved, it follows from the opponent's battlefield.
+        if (activePlayer instanceof AI) ((AI) activePlayer).restoreTargeting(passivePlayer);
+        if (passivePlayer instanceof AI) ((AI) passivePlayer).restoreTargeting(activePlayer);
+
+        List<Object> state = new ArrayList<>(3);
+        state.add(rounds);
+        state.add(activePlayer);
+        state.add(passivePlayer);
+        return state;
+    }
+
+    /**
+     * Encode the beginning of a recorded game: the rules and the players with their ships.
+     * The moves are appended to it one by one. (See encodeMove())
+     *
+     * @param first The player who fires first.
+     * @param second The player who takes the first fire.
+     * @return the encoded beginning of the record.
+     */
+    public static byte[] encodeRecord(Player first, Player second) {
+        GameConfig config = first.getConfig();
+        Output out = new Output(64 + config.getFleetSize() * 8);
+        out.writeBytes(RECORD_MAGIC);
+        out.writeByte(RECORD_VERSION);
+        out.writeVarInt(config.getRows());
+        out.writeVarInt(config.getColumns());
+        out.writeVarInt(config.getFleetSize());
+        for (int i = 0; i < config.getFleetSize(); i++) {
+            out.writeVarInt(config.getShipLength(i));
+        }
+        for (Player player : new Player[] {first, second}) {
+            out.writeByte(player instanceof AI ? COMPUTER : HUMAN);
+            out.writeString(player.getName());
+            for (Ship ship : player.fleet) {
+                int cell = (ship.getPosition().getRow() - 1) * config.getColumns() + ship.getPosition().getColumn() - 1;
+                out.writeVarInt((cell << 1) | ship.getDirection());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode a move of a recorded game: a variable length integer of the target cell and the result of the fire.
+     * Who fired follows from the results, because the players take turns after the missed shots.
+     *
+     * @param cell The index of the target cell (row * columns + column, starting from 0).
+     * @param result The result of the fire. (See Player.takeFire())
+     * @param buffer Where to encode the move. It has at least MAX_MOVE_SIZE bytes.
+     * @return the size of the encoded move.
+     */
+    public static int encodeMove(int cell, int result, byte[] buffer) {
+        int value = (cell << 2) | result;
+        int size = 0;
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+        return size;
+    }
+
+    /**
+     * Decode a recorded game. An incomplete move at the end of the record (e.g. because of a crash while
+     * writing it) is ignored. The moves are not checked against the rules, it's done by Replay.
+     *
+     * @param data The encoded record.
+     * @return the recorded game.
+     * @throws IOException if the data is not a recorded game.
+     */
+    public static GameRecord decodeRecord(byte[] data) throws IOException {
+        Input in = new Input(data);
+        in.readHeader(RECORD_MAGIC, RECORD_VERSION);
+        GameConfig config = readConfig(in, GAME_VERSION);
+        boolean[] computers = new boolean[2];
+        String[] names = new String[2];
+        int[][] placements = new int[2][config.getFleetSize()];
+        for (int player = 0; player < 2; player++) {
+            int kind = in.readByte();
+            if (kind != COMPUTER && kind != HUMAN) throw new IOException("Unknown kind of player: " + kind);
+            computers[player] = kind == COMPUTER;
+            names[player] = in.readString();
+            for (int ship = 0; ship < config.getFleetSize(); ship++) {
+                placements[player][ship] = in.readVarInt();
+            }
+        }
+        int headerSize = in.position;
+
+        // Every move is at least one byte.
+        int[] moves = new int[data.length - headerSize];
+        int count = 0;
+        while (!in.isEnd()) {
+            try {
+                moves[count] = in.readVarInt();
+            } catch (IOException e) {
+                break;
+            }
+            count++;
+        }
+        return new GameRecord(config, computers, names, placements, headerSize, Arrays.copyOf(moves, count));
+    }
+
+    /**
+     * Decode a leader board of the old formats. (The leader board is stored by Leaderboard since then.)
+     * The scores are zigzag encoded, so a negative score is short as well. A leader board written with Java
+     * serialization, before this codec, is decoded as well.
+     *
+     * @param data The encoded leader board.
+     * @return the scores of the leader board in the order they were saved.
+     * @throws IOException if the data is not a valid leader board.
+     */
+    public static List<Score> decodeScores(byte[] data) throws IOException {
+        if (isSerialized(data)) return decodeSerializedScores(data);
+        Input in = new Input(data);
+        in.readHeader(SCORES_MAGIC, SCORES_VERSION);
+        int count = in.readVarInt();
+        List<Score> scores = new ArrayList<>(Math.min(count, data.length));
+        for (int i = 0; i < count; i++) {
+            String name = in.readString();
+            int zigzag = in.readVarInt();
+            scores.add(new Score(name, (zigzag >>> 1) ^ -(zigzag & 1)));
+        }
+        if (!in.isEnd()) throw new IOException("Unexpected data after the leader board.");
+        return scores;
+    }
+
+    /**
+     * Return if the data was written with Java serialization, by a version before this codec.
+     *
+     * @param data The content of a file.
+     * @return true if the data starts like Java serialization.
+     */
+    public static boolean isSerialized(byte[] data) {
+        return data.length >= SERIALIZATION_MAGIC.length && data[0] == SERIALIZATION_MAGIC[0]
+                && data[1] == SERIALIZATION_MAGIC[1];
+    }
+
+    /**
+     * Decode a leader board written with Java serialization: a list of the top 10 scores.
+     * Only the list and the scores are deserialized, anything else in the data is rejected.
+     *
+     * @param data The serialized leader board.
+     * @return the scores of the leader board.
+     * @throws IOException if the data is not a valid leader board.
+     */
+    private static List<Score> decodeSerializedScores(byte[] data) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            in.setObjectInputFilter(SERIALIZED_SCORES_FILTER);
+            Object list = in.readObject();
+            if (!(list instanceof List)) throw new IOException("The serialized leader board is not a list.");
+            List<Score> scores = new ArrayList<>(((List<?>) list).size());
+            for (Object score : (List<?>) list) {
+                if (!(score instanceof Score)) throw new IOException("The serialized leader board is not a list of scores.");
+                scores.add((Score) score);
+            }
+            return scores;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid serialized leader board: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decode the rules of a game.
+     *
+     * @param in Where to read the rules from.
+     * @param version The version of the saved game.
+     * @return the rules of the game.
+     * @throws IOException if the data is not valid rules.
+     */
+    private static GameConfig readConfig(Input in, int version) throws IOException {
+        int rows = in.readVarInt();
+        int columns = in.readVarInt();
+        int[] fleet;
+        if (version == 1) {
+            fleet = GameConfig.DEFAULT.getFleet();
+        } else {
+            int ships = in.readVarInt();
+            if (ships < 1 || ships > GameConfig.MAX_CELLS) throw new IOException("Invalid number of ships: " + ships);
+            fleet = new int[ships];
+            for (int i = 0; i < ships; i++) {
+                fleet[i] = in.readVarInt();
+            }
+        }
+        try {
+            return new GameConfig(rows, columns, fleet);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Encode a player.
+     *
+     * @param out Where to write the player.
+     * @param player The player to encode.
+     */
+    private static void writePlayer(Output out, Player player) {
+        Battlefield battlefield = player.battlefield;
+        int columns = battlefield.getColumns();
+        out.writeByte(player instanceof AI ? COMPUTER : HUMAN);
+        if (player instanceof AI) out.writeByte(((AI) player).getLevel());
+        out.writeString(player.getName());
+        out.writeVarInt(player.getHits());
+        out.writeVarInt(player.getMisses());
+
+        out.writeVarInt(player.fleet.size());
+        for (Ship ship : player.fleet) {
+            int cell = (ship.getPosition().getRow() - 1) * columns + ship.getPosition().getColumn() - 1;
+            out.writeVarInt(ship.getSize());
+            out.writeVarInt((cell << 1) | ship.getDirection());
+        }
+
+        // The fired cells, 8 in a byte
+        int bits = 0;
+        int count = 0;
+        for (int row = 0; row < battlefield.getRows(); row++) {
+            for (int column = 0; column < columns; column++) {
+                if (battlefield.isFired(row, column)) bits |= 1 << count;
+                if (++count == 8) {
+                    out.writeByte(bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0) out.writeByte(bits);
+    }
+
+    /**
+     * Decode a player. Its ships are placed and the fired cells are fired upon again,
+     * so the state of the ships is the same as when it was saved.
+     *
+     * @param in Where to read the player from.
+     * @param config The rules of the game.
+     * @param version The version of the saved game format.
+     * @return the decoded player.
+     * @throws IOException if the data is not a valid player.
+     */
+    private static Player readPlayer(Input in, GameConfig config, int version) throws IOException {
+        int rows = config.getRows();
+        int columns = config.getColumns();
+        int kind = in.readByte();
+        // The computer played on the NORMAL level before version 3.
+        int level = kind == COMPUTER && version >= 3 ? in.readByte() : AI.NORMAL;
+        String name = in.readString();
+        Player player;
+        try {
+            if (kind == COMPUTER) player = new AI(config, level);
+            else if (kind == HUMAN) player = new Player(name, config);
+            else throw new IOException("Unknown kind of player: " + kind);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        player.restoreStatistics(in.readVarInt(), in.readVarInt());
+
+        int ships = in.readVarInt();
+        // The ships are placed in the order of the fleet.
+        if (ships != config.getFleetSize()) throw new IOException("The fleet doesn't match the rules: " + ships + " ships");
+        for (int i = 0; i < ships; i++) {
+            int size = in.readVarInt();
+            int placement = in.readVarInt();
+            int cell = placement >>> 1;
+            Position position;
+            try {
+                position = Position.ofCell(cell, config);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("A ship is outside of the battlefield.");
+            }
+            if (size != config.getShipLength(i)) throw new IOException("The fleet doesn't match the rules: " + size + " long ship");
+            if (!player.isPlacementAllowed(position, placement & 1, size)) {
+                throw new IOException("A ship collides with another ship or sticks out from the battlefield.");
+            }
+            player.addShip(new Ship(size, position, placement & 1));
+        }
+
+        int cell = 0;
+        for (int i = 0, bytes = (rows * columns + 7) / 8; i < bytes; i++) {
+            int bits = in.readByte();
+            for (int bit = 0; bit < 8 && cell < rows * columns; bit++, cell++) {
+                if ((bits & (1 << bit)) != 0) player.takeFire(Position.ofCell(cell, config));
+            }
+        }
+        return player;
+    }
+
+    /**
+     * A growing buffer which the encoded data is written to.
+     */
+    private static final class Output {
+
+        /**
+         * The written bytes, followed by the free space.
+         */
+        private byte[] buffer;
+
+        /**
+         * The number of written bytes.
+         */
+        private int size;
+
+        /**
+         * Create an empty buffer.
+         *
+         * @param capacity The expected size of the data.
+         */
+        Output(int capacity) {
+            buffer = new byte[capacity];
+            size = 0;
+        }
+
+        /**
+         * Write one byte.
+         *
+         * @param value The byte to write in the lowest 8 bits.
+         */
+        void writeByte(int value) {
+            if (size == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, size);
+                buffer = grown;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        /**
+         * Write bytes as they are.
+         *
+         * @param bytes The bytes to write.
+         */
+        void writeBytes(byte[] bytes) {
+            for (byte b : bytes) writeByte(b);
+        }
+
+        /**
+         * Write a variable length integer. Negative numbers take 5 bytes.
+         *
+         * @param value The number to write.
+         */
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        /**
+         * Write a variable length long integer.
+         *
+         * @param value The number to write.
+         */
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        /**
+         * Write a text as its UTF-8 length and bytes.
+         *
+         * @param text The text to write.
+         */
+        void writeString(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        /**
+         * Return the written bytes.
+         *
+         * @return a copy of the written bytes.
+         */
+        byte[] toByteArray() {
+            byte[] data = new byte[size];
+            System.arraycopy(buffer, 0, data, 0, size);
+            return data;
+        }
+    }
+
+    /**
+     * Reads the encoded data. Every method throws an IOException if the data ends too early.
+     */
+    private static final class Input {
+
+        /**
+         * The encoded data.
+         */
+        private final byte[] data;
+
+        /**
+         * The index of the next byte to read.
+         */
+        private int position;
+
+        /**
+         * Start reading the data from its beginning.
+         *
+         * @param data The encoded data.
+         */
+        Input(byte[] data) {
+            this.data = data;
+            position = 0;
+        }
+
+        /**
+         * Read and check the magic and the version at the beginning of the data.
+         *
+         * @param magic The expected magic.
+         * @param maxVersion The latest supported version.
+         * @return the version of the data.
+         * @throws IOException if the magic doesn't match or the version is not supported.
+         */
+        int readHeader(byte[] magic, int maxVersion) throws IOException {
+            for (byte b : magic) {
+                if (readByte() != (b & 0xFF)) throw new IOException("Unknown file format.");
+            }
+            int version = readByte();
+            if (version < 1 || version > maxVersion) throw new IOException("Unsupported version of the file format: " + version);
+            return version;
+        }
+
+        /**
+         * Read one byte.
+         *
+         * @return the byte as an unsigned number.
+         * @throws IOException if the data ended.
+         */
+        int readByte() throws IOException {
+            if (position == data.length) throw new IOException("Unexpected end of the data.");
+            return data[position++] & 0xFF;
+        }
+
+        /**
+         * Read a variable length integer.
+         *
+         * @return the number.
+         * @throws IOException if the data ended or the number is too long.
+         */
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed number.");
+        }
+
+        /**
+         * Read a variable length long integer.
+         *
+         * @return the number.
+         * @throws IOException if the data ended or the number is too long.
+         */
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed number.");
+        }
+
+        /**
+         * Read a text.
+         *
+         * @return the text.
+         * @throws IOException if the data ended.
+         */
+        String readString() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || length > data.length - position) throw new IOException("Unexpected end of the data.");
+            String text = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return text;
+        }
+
+        /**
+         * Check whether all the data was read.
+         *
+         * @return true if there is no more data.
+         */
+        boolean isEnd() {
+            return position == data.length;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * An append-only journal of the shots fired since the last full save (checkpoint) of a game.
+ * The journal starts with the generation of its checkpoint, so a journal which belongs to an older checkpoint
+ * is never replayed on a newer one. Every shot is one fixed size record: the row and the column of the target
+ * (2 bytes each, starting from 1) and the result of the fire (1 byte).
+ */
+public class SaveJournal implements Closeable {
+
+    /**
+     * The size of the header of the journal. (bytes)
+     */
+    public static final int HEADER_SIZE = Long.BYTES;
+
+    /**
+     * The size of one record of the journal. (bytes)
+     */
+    public static final int RECORD_SIZE = 5;
+
+    /**
+     * The file path of the journal.
+     */
+    private final Path path;
+
+    /**
+     * Used to encode a record before writing it. It's reused between the records.
+     */
+    private final byte[] buffer;
+
+    /**
+     * The stream of the open journal, or null if it's not open.
+     */
+    private FileOutputStream out;
+
+    /**
+     * The default constructor of the class. The journal is not open until it's reset.
+     *
+     * @param path The file path of the journal.
+     */
+    public SaveJournal(Path path) {
+        this.path = path;
+        buffer = new byte[HEADER_SIZE];
+        out = null;
+    }
+
+    /**
+     * Empty the journal and start it for a new checkpoint.
+     *
+     * @param generation The generation of the new checkpoint.
+     * @throws IOException if the journal cannot be written.
+     */
+    public void reset(long generation) throws IOException {
+        close();
+        out = new FileOutputStream(path.toFile(), false);
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            buffer[i] = (byte) (generation >>> (8 * (HEADER_SIZE - 1 - i)));
+        }
+        out.write(buffer, 0, HEADER_SIZE);
+    }
+
+    /**
+     * Append a shot to the journal.
+     *
+     * @param row The row-index of the target, starting from 1.
+     * @param column The column-index of the target, starting from 1.
+     * @param result The result of the fire.
+     * @throws IOException if the journal is not open or cannot be written.
+     */
+    public void append(int row, int column, int result) throws IOException {
+        if (out == null) throw new IOException("The journal is not open.");
+        buffer[0] = (byte) (row >>> 8);
+        buffer[1] = (byte) row;
+        buffer[2] = (byte) (column >>> 8);
+        buffer[3] = (byte) column;
+        buffer[4] = (byte) result;
+        // One write per record, so a record is either written or not.
+        out.write(buffer, 0, RECORD_SIZE);
+    }
+
+    /**
+     * Force the written records to the disk.
+     *
+     * @throws IOException if the journal is not open or cannot be synced.
+     */
+    public void sync() throws IOException {
+        if (out == null) throw new IOException("The journal is not open.");
+        out.getFD().sync();
+    }
+
+    /**
+     * Return the file path of the journal.
+     *
+     * @return the file path of the journal.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Close the journal if it's open.
+     *
+     * @throws IOException if the journal cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            FileOutputStream stream = out;
+            out = null;
+            stream.close();
+        }
+    }
+
+    /**
+     * Close and delete the journal.
+     *
+     * @throws IOException if the journal cannot be deleted.
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Read the shots of a journal which belongs to the given checkpoint.
+     * An incomplete record at the end of the journal (e.g. because of a crash while writing it) is ignored.
+     *
+     * @param path The file path of the journal.
+     * @param generation The generation of the checkpoint.
+     * @return the shots as (row, column, result) triples one after the other.
+     *         It's empty if the journal doesn't exist or belongs to another checkpoint.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static int[] read(Path path, long generation) throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return new int[0];
+        }
+        if (data.length < HEADER_SIZE) return new int[0];
+        long journalGeneration = 0;
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            journalGeneration = (journalGeneration << 8) | (data[i] & 0xFF);
+        }
+        if (journalGeneration != generation) return new int[0];
+
+        int count = (data.length - HEADER_SIZE) / RECORD_SIZE;
+        int[] shots = new int[count * 3];
+        for (int i = 0, offset = HEADER_SIZE; i < count; i++, offset += RECORD_SIZE) {
+            shots[i * 3] = ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+            shots[i * 3 + 1] = ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+            shots[i * 3 + 2] = data[offset + 4];
+        }
+        return shots;
+    }
+}
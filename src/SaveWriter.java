@@ -0,0 +1,360 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the saved game and its journal on a background thread, so the game doesn't wait for the disk.
+ *
+ * <p>The game hands over immutable snapshots: the encoded game (a checkpoint) or a shot to append to the journal.
+ * Every submission gets a sequence number, and the writer reports the last sequence which is durable (written and
+ * synced to the disk). If a checkpoint is submitted while the previous one and the shots after it are still
+ * waiting, those are dropped, because the new checkpoint contains all of them.</p>
+ *
+ * <p>A checkpoint is written to a temporary file which replaces the save in one atomic move, so the save is
+ * either the old or the new one, even if the game stops in the middle of writing it. The shots are only appended
+ * to the journal of a checkpoint which was written successfully. After a failure nothing is appended until the
+ * next checkpoint is written.</p>
+ */
+public class SaveWriter {
+
+    /**
+     * The number of milliseconds the writer thread waits for a new submission before it exits.
+     */
+    private static final long IDLE_TIMEOUT = 5000;
+
+    /**
+     * The file path of the saved game.
+     */
+    private final Path savePath;
+
+    /**
+     * The file path of the save while it's being written.
+     */
+    private final Path temporaryPath;
+
+    /**
+     * The journal of the saved game. It's only used by the writer thread, or while the writer thread is idle.
+     */
+    private final SaveJournal journal;
+
+    /**
+     * The encoded game waiting to be written, or null if there isn't any.
+     */
+    private byte[] pendingCheckpoint;
+
+    /**
+     * The generation of the pending checkpoint.
+     */
+    private long pendingGeneration;
+
+    /**
+     * The shots waiting to be appended to the journal as (row, column, result) triples.
+     */
+    private int[] pendingShots;
+
+    /**
+     * The number of used elements in pendingShots.
+     */
+    private int pendingShotsSize;
+
+    /**
+     * The shots taken over by the writer thread. It's swapped with pendingShots, so neither of them is reallocated.
+     */
+    private int[] writtenShots;
+
+    /**
+     * The sequence number of the last submission.
+     */
+    private long submittedSequence;
+
+    /**
+     * The sequence number of the last submission which was processed, successfully or not.
+     */
+    private long processedSequence;
+
+    /**
+     * The sequence number of the last submission which is durable.
+     */
+    private long durableSequence;
+
+    /**
+     * True if the last processed write failed. It's cleared by the next successful checkpoint.
+     */
+    private boolean failed;
+
+    /**
+     * True if the journal belongs to the last checkpoint written, so shots can be appended to it.
+     */
+    private boolean journalOpen;
+
+    /**
+     * The thread which writes the files, or null if it's not started yet or it exited while idle.
+     */
+    private Thread thread;
+
+    /**
+     * The default constructor of the class. The writer thread is started by the first submission,
+     * and it exits after it was idle for a while, so a game server doesn't keep one for every idle session.
+     *
+     * @param savePath The file path of the saved game.
+     * @param journalPath The file path of the journal of the saved game.
+     */
+    public SaveWriter(Path savePath, Path journalPath) {
+        this.savePath = savePath;
+        temporaryPath = savePath.resolveSibling(savePath.getFileName() + ".tmp");
+        journal = new SaveJournal(journalPath);
+        pendingCheckpoint = null;
+        pendingShots = new int[3 * 64];
+        writtenShots = new int[pendingShots.length];
+        pendingShotsSize = 0;
+        submittedSequence = 0;
+        processedSequence = 0;
+        durableSequence = 0;
+        failed = false;
+        journalOpen = false;
+        thread = null;
+    }
+
+    /**
+     * Submit a checkpoint to write. The following shots are appended to its journal.
+     *
+     * @param generation The generation of the checkpoint.
+     * @param data The encoded game. It must not be changed after it's submitted.
+     * @return the sequence number of the submission.
+     */
+    public synchronized long submitCheckpoint(long generation, byte[] data) {
+        pendingCheckpoint = data;
+        pendingGeneration = generation;
+        // The new checkpoint already contains the waiting shots.
+        pendingShotsSize = 0;
+        return submit();
+    }
+
+    /**
+     * Submit a shot to append to the journal of the last checkpoint.
+     *
+     * @param row The row-index of the target, starting from 1.
+     * @param column The column-index of the target, starting from 1.
+     * @param result The result of the fire.
+     * @return the sequence number of the submission.
+     */
+    public synchronized long submitShot(int row, int column, int result) {
+        if (pendingShotsSize == pendingShots.length) {
+            int[] grown = new int[pendingShots.length * 2];
+            System.arraycopy(pendingShots, 0, grown, 0, pendingShotsSize);
+            pendingShots = grown;
+        }
+        pendingShots[pendingShotsSize++] = row;
+        pendingShots[pendingShotsSize++] = column;
+        pendingShots[pendingShotsSize++] = result;
+        return submit();
+    }
+
+    /**
+     * Return true if everything submitted is durable.
+     *
+     * @return true if the game is saved.
+     */
+    public synchronized boolean isDurable() {
+        return durableSequence == submittedSequence;
+    }
+
+    /**
+     * Return true if the last write failed, and no checkpoint was written since then.
+     *
+     * @return true if the last write failed.
+     */
+    public synchronized boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Wait until everything submitted is processed.
+     *
+     * @return true if everything submitted is durable.
+     */
+    public synchronized boolean flush() {
+        boolean interrupted = false;
+        while (processedSequence != submittedSequence) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return durableSequence == submittedSequence;
+    }
+
+    /**
+     * Drop everything which is waiting to be written, then wait for the write in progress to finish.
+     */
+    public synchronized void discard() {
+        pendingCheckpoint = null;
+        pendingShotsSize = 0;
+        flush();
+    }
+
+    /**
+     * Write everything submitted, then close the journal. The writer can be used again after it.
+     *
+     * @return true if everything submitted is durable.
+     * @throws IOException if the journal cannot be closed.
+     */
+    public synchronized boolean close() throws IOException {
+        boolean durable = flush();
+        journalOpen = false;
+        journal.close();
+        return durable;
+    }
+
+    /**
+     * Drop everything which is waiting to be written, then delete the saved game and its journal.
+     *
+     * @throws IOException if the files cannot be deleted.
+     */
+    public synchronized void delete() throws IOException {
+        discard();
+        journalOpen = false;
+        journal.delete();
+        Files.deleteIfExists(temporaryPath);
+        Files.delete(savePath);
+    }
+
+    /**
+     * Return the file path of the journal.
+     *
+     * @return the file path of the journal.
+     */
+    public Path getJournalPath() {
+        return journal.getPath();
+    }
+
+    /**
+     * Register a submission and wake up the writer thread.
+     *
+     * @return the sequence number of the submission.
+     */
+    private long submit() {
+        if (thread == null) {
+            thread = new Thread(this::run, "save-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        submittedSequence++;
+        notifyAll();
+        return submittedSequence;
+    }
+
+    /**
+     * The loop of the writer thread: take everything waiting, write it, then report the result.
+     * It returns if there was nothing to write for IDLE_TIMEOUT, the next submission starts a new thread.
+     */
+    private void run() {
+        while (true) {
+            byte[] checkpoint;
+            long generation;
+            int[] shots;
+            int shotsSize;
+            long sequence;
+            synchronized (this) {
+                boolean idle = false;
+                while (processedSequence == submittedSequence) {
+                    if (idle) {
+                        thread = null;
+                        return;
+                    }
+                    try {
+                        wait(IDLE_TIMEOUT);
+                    } catch (InterruptedException e) {
+                        // The thread is a daemon, it's stopped together with the program.
+                    }
+                    idle = true;
+                }
+                checkpoint = pendingCheckpoint;
+                generation = pendingGeneration;
+                shots = pendingShots;
+                shotsSize = pendingShotsSize;
+                sequence = submittedSequence;
+                pendingCheckpoint = null;
+                pendingShots = writtenShots;
+                pendingShotsSize = 0;
+                writtenShots = shots;
+            }
+
+            long start = System.nanoTime();
+            boolean success = write(checkpoint, generation, shots, shotsSize);
+            GameMetrics.get().record(GameMetrics.SAVE_WRITE, start);
+            long bytes = (checkpoint == null ? 0 : checkpoint.length + SaveJournal.HEADER_SIZE)
+                    + shotsSize / 3 * SaveJournal.RECORD_SIZE;
+            GameMetrics.get().countSave(success ? bytes : 0, success);
+
+            synchronized (this) {
+                processedSequence = sequence;
+                failed = !success;
+                if (success) durableSequence = sequence;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Write a checkpoint and the shots after it. Only called by the writer thread.
+     *
+     * @param checkpoint The encoded game, or null if only shots are written.
+     * @param generation The generation of the checkpoint.
+     * @param shots The shots to append to the journal as (row, column, result) triples.
+     * @param shotsSize The number of used elements in shots.
+     * @return true if everything is written and synced to the disk.
+     */
+    private boolean write(byte[] checkpoint, long generation, int[] shots, int shotsSize) {
+        try {
+            if (checkpoint != null) {
+                journalOpen = false;
+                writeCheckpoint(checkpoint);
+                journal.reset(generation);
+                journalOpen = true;
+            }
+            if (shotsSize > 0) {
+                // The journal belongs to a checkpoint which wasn't written, the shots would be replayed on an older one.
+                if (!journalOpen) return false;
+                for (int i = 0; i < shotsSize; i += 3) {
+                    journal.append(shots[i], shots[i + 1], shots[i + 2]);
+                }
+            }
+            if (journalOpen) journal.sync();
+            return true;
+        } catch (IOException | SecurityException e) {
+            journalOpen = false;
+            System.err.println("The game cannot be saved: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Write a checkpoint to the temporary file, then move it in place of the saved game.
+     *
+     * @param checkpoint The encoded game.
+     * @throws IOException if the checkpoint cannot be written.
+     */
+    private void writeCheckpoint(byte[] checkpoint) throws IOException {
+        Path directory = savePath.toAbsolutePath().getParent();
+        if (directory != null) Files.createDirectories(directory);
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        try {
+            Files.move(temporaryPath, savePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryPath, savePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
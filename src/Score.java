@@ -2,9 +2,15 @@ import java.io.Serializable;
 
 /**
  * Represents a final score of a player.
+ * It's serializable only to read the leader boards of the old versions. (See SaveCodec.decodeScores())
  */
 public class Score implements Serializable {
 
+    /**
+     * The version of the serialized scores, the same as the old versions had.
+     */
+    private static final long serialVersionUID = 3703049594302009234L;
+
     /**
      * The name of the player.
      */
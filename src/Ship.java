@@ -1,21 +1,9 @@
-import java.io.Serializable;
-
 /**
  * Represents a ship in the Battleship game.
  *
  * @author MiklosMayer
  */
-public class Ship implements Serializable {
-
-    /**
-     * Used to generate the ids for the ships.
-     */
-    private static int count = 0;
-
-    /**
-     * The unique id of the ship.
-     */
-    private final int id;
+public class Ship {
 
     /**
      * The size of the ship.
@@ -33,14 +21,14 @@ public class Ship implements Serializable {
     private final int direction;
 
     /**
-     * The number of hits the ship has received.
+     * The segments of the ship which were hit, one bit per segment from the top-left end.
      */
-    private int hits;
+    private long hits;
 
     /**
-     * The percentage of damage the ship has received. 0 if it hasn't been hit and 100 if it sank.
+     * The hits of the sunk ship: a bit for every segment.
      */
-    private int sankPercent;
+    private final long sunk;
 
     /**
      * The default constructor of the class.
@@ -48,23 +36,15 @@ public class Ship implements Serializable {
      * @param size The size of the ship.
      * @param position The top-left end of the ship.
      * @param direction The direction of the ship. 0 if horizontal, 1 if vertical.
+     * @throws IllegalArgumentException if the size is not between 1 and GameConfig.MAX_SHIP_LENGTH.
      */
-    public Ship(int size, Position position, int direction) {
-        count++;
-        id = count;
+    public Ship(int size, Position position, int direction) throws IllegalArgumentException {
+        if (size < 1 || size > GameConfig.MAX_SHIP_LENGTH) throw new IllegalArgumentException("Invalid ship size: " + size);
         this.size = size;
         this.position = position;
         this.direction = direction;
-        sankPercent = 0;
-    }
-
-    /**
-     * Returns the unique id of the ship.
-     *
-     * @return the id of the ship.
-     */
-    public int getId() {
-        return id;
+        hits = 0;
+        sunk = -1L >>> (64 - size);
     }
 
     /**
@@ -95,18 +75,22 @@ public class Ship implements Serializable {
     }
 
     /**
-     * Returns the percentage of damage the ship has received.
+     * Returns the percentage of damage the ship has received. It's computed from the hits, e.g. for displaying.
      *
      * @return a whole number between 0 and 100. 0 if it hasn't been hit and 100 if it sank.
      */
     public int getSankPercent() {
-        return sankPercent;
+        return Long.bitCount(hits) * 100 / size;
     }
 
     /**
      * Registers a hit on the ship.
+     *
+     * @param segment The segment which was hit, counted from the top-left end of the ship, starting from 0.
+     * @return true if the ship sank.
      */
-    public void takeHit() {
-        sankPercent = (int) ((double) ++hits / size * 100);
+    public boolean takeHit(int segment) {
+        hits |= 1L << segment;
+        return hits == sunk;
     }
 }
@@ -0,0 +1,127 @@
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+/**
+ * Entry point of the headless simulation mode. It plays AI-vs-AI games on all the cores
+ * without displaying or saving anything and reports aggregate statistics about them.
+ *
+ * <p>Every game has its own seed derived from the seed of the simulation and the index of the game, so a simulation
+ * with the same seed plays the same games and reports the same statistics on any number of cores.</p>
+ */
+public class Simulation {
+
+    /**
+     * The number of games to simulate if it's not given in the arguments.
+     */
+    private static final long DEFAULT_GAMES = 1_000_000;
+
+    /**
+     * The increment of the seeds of SplittableRandom. The seed of the game i is the (i + 1)-th random number of the
+     * simulation's seed, which can be computed without generating the ones before it.
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The entry point of the simulation.
+     *
+     * @param args The number of games to simulate, the size of the battlefields (e.g. '10x10'),
+     *             the lengths of the ships (e.g. '4,3x2,2x3,1x4'), the level of the AIs
+     *             ('normal', 'hard' or 'expert') and the seed of the simulation. All of them are optional.
+     */
+    public static void main(String[] args) {
+        long games = DEFAULT_GAMES;
+        if (args.length > 0) {
+            try {
+                games = Long.parseLong(args[0]);
+            } catch (NumberFormatException e) {
+                System.err.println("The number of games is not a number: " + args[0]);
+                return;
+            }
+        }
+        GameConfig config;
+        int level;
+        long seed;
+        try {
+            config = GameConfig.parse(args.length > 1 ? args[1] : null, args.length > 2 ? args[2] : null);
+            level = args.length > 3 ? AI.parseLevel(args[3]) : AI.NORMAL;
+            seed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        System.out.printf("Simulating %d games of %s on the %s level with the seed %d on %d cores...%n", games,
+                config, AI.getLevelName(level), seed, Runtime.getRuntime().availableProcessors());
+        OpeningHeatmap.load(config);
+        long start = System.nanoTime();
+        SimulationStatistics statistics = run(games, config, level, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(statistics.report(seconds));
+    }
+
+    /**
+     * Simulate the given number of games in parallel.
+     *
+     * @param games The number of games to simulate.
+     * @param config The rules of the games.
+     * @return the statistics of the simulated games.
+     */
+    public static SimulationStatistics run(long games, GameConfig config) {
+        return run(games, config, AI.NORMAL);
+    }
+
+    /**
+     * Simulate the given number of games in parallel between AIs of the given level.
+     *
+     * @param games The number of games to simulate.
+     * @param config The rules of the games.
+     * @param level The level of the AIs. (See AI.NORMAL)
+     * @return the statistics of the simulated games.
+     */
+    public static SimulationStatistics run(long games, GameConfig config, int level) {
+        return run(games, config, level, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Simulate the given number of games in parallel between AIs of the given level. The games are the same
+     * whenever they are simulated with the same seed.
+     *
+     * @param games The number of games to simulate.
+     * @param config The rules of the games.
+     * @param level The level of the AIs. (See AI.NORMAL)
+     * @param seed The seed of the simulation.
+     * @return the statistics of the simulated games.
+     */
+    public static SimulationStatistics run(long games, GameConfig config, int level, long seed) {
+        return LongStream.range(0, games)
+                .parallel()
+                .mapToObj(i -> playGame(config, level, gameSeed(seed, i)))
+                .collect(SimulationStatistics::new, SimulationStatistics::accept, SimulationStatistics::combine);
+    }
+
+    /**
+     * Return the seed of a game of a simulation.
+     *
+     * @param seed The seed of the simulation.
+     * @param game The index of the game.
+     * @return the seed of the game.
+     */
+    static long gameSeed(long seed, long game) {
+        // The same as the (game + 1)-th nextLong() of new SplittableRandom(seed).
+        return new SplittableRandom(seed + game * GOLDEN_GAMMA).nextLong();
+    }
+
+    /**
+     * Play a single game between two AIs.
+     *
+     * @param config The rules of the game.
+     * @param level The level of the AIs.
+     * @param seed The seed of the game.
+     * @return the finished game.
+     */
+    private static GameOfBattleships playGame(GameConfig config, int level, long seed) {
+        GameOfBattleships game = new GameOfBattleships(config, level, seed);
+        game.simulate();
+        return game;
+    }
+}
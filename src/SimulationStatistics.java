@@ -0,0 +1,232 @@
+/**
+ * Collects aggregate statistics about simulated games.
+ * An instance is not thread-safe, but instances collected on different threads can be combined.
+ */
+public class SimulationStatistics {
+
+    /**
+     * The width of one bucket of the score distribution. (points)
+     */
+    public static final int SCORE_BUCKET_WIDTH = 100;
+
+    /**
+     * The number of games collected.
+     */
+    private long games;
+
+    /**
+     * The number of games won by the player who started the game.
+     */
+    private long firstPlayerWins;
+
+    /**
+     * The number of shots fired by the winners.
+     */
+    private long winnerShots;
+
+    /**
+     * The number of hits of both players in all the games.
+     */
+    private long hits;
+
+    /**
+     * The number of misses of both players in all the games.
+     */
+    private long misses;
+
+    /**
+     * The sum of the scores of the winners.
+     */
+    private long scoreSum;
+
+    /**
+     * The number of games by the shots fired by the winner. The index is the number of shots.
+     */
+    private long[] shotsToWin;
+
+    /**
+     * The number of games by the score of the winner. The index is the score divided by SCORE_BUCKET_WIDTH.
+     */
+    private long[] scores;
+
+    /**
+     * The default constructor of the class. Create an empty collection.
+     */
+    public SimulationStatistics() {
+        shotsToWin = new long[0];
+        scores = new long[0];
+    }
+
+    /**
+     * Add the result of a finished game to the statistics.
+     *
+     * @param game The finished game.
+     */
+    public void accept(GameOfBattleships game) {
+        Player winner = game.getWinner();
+        Player loser = game.getLoser();
+        int shots = winner.getHits() + winner.getMisses();
+        int score = game.calculateScore();
+
+        games++;
+        // The player who started the game has one more round if it won.
+        if (game.getRounds() % 2 == 1) firstPlayerWins++;
+        winnerShots += shots;
+        hits += winner.getHits() + loser.getHits();
+        misses += winner.getMisses() + loser.getMisses();
+        scoreSum += score;
+
+        shotsToWin = count(shotsToWin, shots);
+        scores = count(scores, Math.max(score, 0) / SCORE_BUCKET_WIDTH);
+    }
+
+    /**
+     * Add the statistics collected by another instance to this one.
+     *
+     * @param other The other statistics to add.
+     */
+    public void combine(SimulationStatistics other) {
+        games += other.games;
+        firstPlayerWins += other.firstPlayerWins;
+        winnerShots += other.winnerShots;
+        hits += other.hits;
+        misses += other.misses;
+        scoreSum += other.scoreSum;
+        for (int i = 0; i < other.shotsToWin.length; i++) {
+            if (other.shotsToWin[i] != 0) shotsToWin = count(shotsToWin, i, other.shotsToWin[i]);
+        }
+        for (int i = 0; i < other.scores.length; i++) {
+            if (other.scores[i] != 0) scores = count(scores, i, other.scores[i]);
+        }
+    }
+
+    /**
+     * Return the number of games collected.
+     *
+     * @return the number of games.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Return the average number of shots the winners needed to win.
+     *
+     * @return the average shots to win, or 0 if there isn't any game collected.
+     */
+    public double getAverageShotsToWin() {
+        return games == 0 ? 0 : (double) winnerShots / games;
+    }
+
+    /**
+     * Return the ratio of the shots which hit a ship, from both players.
+     *
+     * @return the hit ratio between 0 and 1.
+     */
+    public double getHitRatio() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Return the average score of the winners.
+     *
+     * @return the average score, or 0 if there isn't any game collected.
+     */
+    public double getAverageScore() {
+        return games == 0 ? 0 : (double) scoreSum / games;
+    }
+
+    /**
+     * Return the number of shots the winners needed to win in the given percentage of the games.
+     *
+     * @param percentile The percentage of the games between 0 and 100.
+     * @return the number of shots.
+     */
+    public int getShotsToWinPercentile(double percentile) {
+        return percentile(shotsToWin, percentile);
+    }
+
+    /**
+     * Return the lower bound of the score bucket the winners reached in the given percentage of the games.
+     *
+     * @param percentile The percentage of the games between 0 and 100.
+     * @return the lower bound of the score bucket.
+     */
+    public int getScorePercentile(double percentile) {
+        return percentile(scores, percentile) * SCORE_BUCKET_WIDTH;
+    }
+
+    /**
+     * Generate a displayable report of the statistics.
+     *
+     * @param seconds The time it took to simulate the games.
+     * @return the report as a String.
+     */
+    public String report(double seconds) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Games:             %d%n", games));
+        builder.append(String.format("Time:              %.3f s%n", seconds));
+        builder.append(String.format("Games/sec:         %.0f%n", games / seconds));
+        builder.append(String.format("First player wins: %.2f %%%n", games == 0 ? 0 : firstPlayerWins * 100.0 / games));
+        builder.append(String.format("Hit ratio:         %.4f%n", getHitRatio()));
+        builder.append(String.format("Shots to win:      avg %.2f, min %d, p50 %d, p90 %d, p99 %d, max %d%n",
+                getAverageShotsToWin(), getShotsToWinPercentile(0), getShotsToWinPercentile(50),
+                getShotsToWinPercentile(90), getShotsToWinPercentile(99), getShotsToWinPercentile(100)));
+        builder.append(String.format("Score:             avg %.0f, p10 %d, p50 %d, p90 %d%n",
+                getAverageScore(), getScorePercentile(10), getScorePercentile(50), getScorePercentile(90)));
+        builder.append("Score distribution:\n");
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] == 0) continue;
+            builder.append(String.format("%8d - %-8d %10d (%.2f %%)%n",
+                    i * SCORE_BUCKET_WIDTH, (i + 1) * SCORE_BUCKET_WIDTH - 1, scores[i], scores[i] * 100.0 / games));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Increase the counter of a histogram at the given index by one.
+     *
+     * @param histogram The histogram to update.
+     * @param index The index of the counter.
+     * @return the histogram, which is grown if the index was out of its bounds.
+     */
+    private static long[] count(long[] histogram, int index) {
+        return count(histogram, index, 1);
+    }
+
+    /**
+     * Increase the counter of a histogram at the given index.
+     *
+     * @param histogram The histogram to update.
+     * @param index The index of the counter.
+     * @param amount The amount to add to the counter.
+     * @return the histogram, which is grown if the index was out of its bounds.
+     */
+    private static long[] count(long[] histogram, int index, long amount) {
+        if (index >= histogram.length) {
+            long[] grown = new long[Math.max(index + 1, histogram.length * 2)];
+            System.arraycopy(histogram, 0, grown, 0, histogram.length);
+            histogram = grown;
+        }
+        histogram[index] += amount;
+        return histogram;
+    }
+
+    /**
+     * Find the index in a histogram below which the given percentage of the counts are.
+     *
+     * @param histogram The histogram to search in.
+     * @param percentile The percentage between 0 and 100.
+     * @return the index of the percentile.
+     */
+    private int percentile(long[] histogram, double percentile) {
+        if (games == 0) return 0;
+        long threshold = Math.max(1, (long) Math.ceil(games * percentile / 100));
+        long sum = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += histogram[i];
+            if (sum >= threshold) return i;
+        }
+        return histogram.length - 1;
+    }
+}
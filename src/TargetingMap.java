@@ -0,0 +1,520 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Keeps track of what is known about the opponent's battlefield and the number of ways the
+ * opponent's remaining ships could be placed on each cell (the placement density).
+ * The density is updated incrementally after every fire, and it is used to choose the next target.
+ * A placement of a ship counts with the number of ships with its length in the fleet, and it's removed with the same
+ * weight when one of its cells turns out to be empty, so a fire only updates the placements through the cells next
+ * to its target, even if it sinks a ship: the sunk ship blocks its cells and the cells around it.
+ * The unknown cells are kept in buckets by their density (see CellBuckets), so the densest cell is found in
+ * constant time, and a cell which was not fired upon is drawn in constant time when only empty cells are left.
+ * The cells are indexed row by row (row * columns + column), starting from 0.
+ * Only the state and the buckets have elements for every cell, everything else is as large as the fleet.
+ */
+public class TargetingMap {
+
+    /**
+     * The cell has not been fired upon and nothing is known about it.
+     */
+    private static final byte UNKNOWN = 0;
+
+    /**
+     * The cell has not been fired upon, but it cannot have a ship on it.
+     */
+    private static final byte WATER = 1;
+
+    /**
+     * The cell was fired upon and it had no ship on it.
+     */
+    private static final byte MISS = 2;
+
+    /**
+     * The cell was fired upon and it has a ship on it which has not sunk yet.
+     */
+    private static final byte HIT = 3;
+
+    /**
+     * The cell was fired upon and it has a sunk ship on it.
+     */
+    private static final byte SUNK = 4;
+
+    /**
+     * The bucket of the cells which were fired upon.
+     */
+    private static final int FIRED_BUCKET = 0;
+
+    /**
+     * The bucket of the cells which were not fired upon, but cannot have a ship on them.
+     */
+    private static final int WATER_BUCKET = 1;
+
+    /**
+     * The bucket of an unknown cell is its density plus this, after the fired and the water buckets.
+     */
+    private static final int DENSITY_OFFSET = 2;
+
+    /**
+     * The number of rows of the opponent's battlefield.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the opponent's battlefield.
+     */
+    private final int columns;
+
+    /**
+     * The number of the opponent's ships which are not yet sunk. The index is the length of the ships.
+     */
+    private final int[] remaining;
+
+    /**
+     * The weight of the placements of each length in the density: the number of ships with the length in the fleet.
+     * It doesn't change when a ship sinks, so a placement is always removed with the weight it was added with.
+     */
+    private final int[] weights;
+
+    /**
+     * The state of each cell. (UNKNOWN, WATER, MISS, HIT or SUNK)
+     */
+    private final byte[] states;
+
+    /**
+     * The unknown cells by the number of possible placements of the remaining ships over them (the density),
+     * then the cells known to be empty and the fired cells. (See FIRED_BUCKET, WATER_BUCKET and DENSITY_OFFSET)
+     */
+    private final CellBuckets buckets;
+
+    /**
+     * The cells which were hit but their ships have not sunk yet.
+     * Only the first hitCount elements are used.
+     */
+    private final int[] hits;
+
+    /**
+     * The number of the cells which were hit but their ships have not sunk yet.
+     */
+    private int hitCount;
+
+    /**
+     * The cells next to the hits which are scored while targeting: above, below, left and right of each hit,
+     * or -1 if that side is outside the battlefield. Only the first hitCount * 4 elements are used.
+     */
+    private final int[] neighbours;
+
+    /**
+     * The scores of the cells in neighbours while targeting.
+     */
+    private final int[] scores;
+
+    /**
+     * The default constructor of the class.
+     *
+     * @param rows The number of rows of the opponent's battlefield.
+     * @param columns The number of columns of the opponent's battlefield.
+     * @param fleet The lengths of the ships in the opponent's fleet.
+     */
+    public TargetingMap(int rows, int columns, int[] fleet) {
+        this.rows = rows;
+        this.columns = columns;
+        int maxLength = 0;
+        for (int length : fleet) maxLength = Math.max(maxLength, length);
+        remaining = new int[maxLength + 1];
+        long shipCells = 0;
+        for (int length : fleet) {
+            remaining[length]++;
+            shipCells += length;
+        }
+        weights = remaining.clone();
+        states = new byte[rows * columns];
+        // There cannot be more hits than the cells of the ships.
+        hits = new int[(int) Math.min(shipCells, (long) rows * columns)];
+        hitCount = 0;
+        neighbours = new int[hits.length * 4];
+        scores = new int[hits.length * 4];
+
+        // Every placement is possible on the empty battlefield. The number of horizontal placements through a cell
+        // depends only on its column, the number of vertical ones only on its row.
+        int[] horizontal = new int[columns];
+        int[] vertical = new int[rows];
+        for (int length = 1; length < weights.length; length++) {
+            if (weights[length] == 0) continue;
+            addPlacementsInLine(horizontal, length, weights[length]);
+            // A ship with the length of 1 is counted only once.
+            if (length > 1) addPlacementsInLine(vertical, length, weights[length]);
+        }
+        int[] density = new int[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                density[row * columns + column] = horizontal[column] + vertical[row] + DENSITY_OFFSET;
+            }
+        }
+        buckets = new CellBuckets(density);
+    }
+
+    /**
+     * Count the placements of ships with the same length through the cells of a line (a row or a column).
+     *
+     * @param line Where the number of placements through each cell of the line is added.
+     * @param length The length of the ships.
+     * @param count The number of ships with this length.
+     */
+    private static void addPlacementsInLine(int[] line, int length, int count) {
+        for (int i = 0; i < line.length; i++) {
+            // The ship starts between i - length + 1 and i, and it must be inside the line.
+            int placements = Math.min(i, line.length - length) - Math.max(i - length + 1, 0) + 1;
+            if (placements > 0) line[i] += placements * count;
+        }
+    }
+
+    /**
+     * Update the map with the result of a fire.
+     *
+     * @param row The row of the target.
+     * @param column The column of the target.
+     * @param result The result of the fire. 0: missed, 1: hit, 2: hit and sank.
+     */
+    public void registerResult(int row, int column, int result) {
+        int cell = row * columns + column;
+        if (result == 0) {
+            block(cell, MISS);
+        } else if (result == 1 || result == 2) {
+            if (states[cell] != HIT) {
+                states[cell] = HIT;
+                buckets.decreaseTo(cell, FIRED_BUCKET);
+                hits[hitCount++] = cell;
+                // Ships cannot touch each other, so there cannot be any ship diagonally from a hit.
+                for (int r = row - 1; r <= row + 1; r += 2) {
+                    for (int c = column - 1; c <= column + 1; c += 2) {
+                        if (r >= 0 && r < rows && c >= 0 && c < columns) block(r * columns + c, WATER);
+                    }
+                }
+            }
+            if (result == 2) sink(row, column);
+        }
+    }
+
+    /**
+     * Choose the next target. While there are hit ships which have not sunk yet, the target is chosen around them,
+     * otherwise the cell where the most of the remaining ships could be placed.
+     * The target is never a cell which has already been fired upon.
+     *
+     * @param random Used for choosing between the equally good targets.
+     * @return the index of the chosen cell, or -1 if there isn't any cell left to fire upon.
+     */
+    public int chooseTarget(SplittableRandom random) {
+        if (hitCount > 0) {
+            int target = chooseAroundHits(random);
+            if (target != -1) return target;
+        }
+        // One of the unknown cells with the highest density.
+        int top = buckets.getTop(DENSITY_OFFSET);
+        if (top != -1) return buckets.get(top, random.nextInt(buckets.size(top)));
+        // Only the cells known to be empty are left, any of them is as good as the other.
+        int water = buckets.size(WATER_BUCKET);
+        return water == 0 ? -1 : buckets.get(WATER_BUCKET, random.nextInt(water));
+    }
+
+    /**
+     * Check if nothing is known about a cell.
+     *
+     * @param cell The index of the cell.
+     * @return true if the cell was not fired upon and it could have a ship on it.
+     */
+    public boolean isUnknown(int cell) {
+        return states[cell] == UNKNOWN;
+    }
+
+    /**
+     * Return the lengths of the opponent's ships which have not sunk yet.
+     *
+     * @return the lengths of the remaining ships, the longest first.
+     */
+    public int[] getRemainingFleet() {
+        return toFleet(remaining);
+    }
+
+    /**
+     * Return the lengths of all the opponent's ships, including the sunk ones.
+     *
+     * @return the lengths of the ships, the longest first.
+     */
+    public int[] getFleet() {
+        return toFleet(weights);
+    }
+
+    /**
+     * List the lengths of ships from the number of ships with each length.
+     *
+     * @param counts The number of ships with each length. The index is the length.
+     * @return the lengths of the ships, the longest first.
+     */
+    private static int[] toFleet(int[] counts) {
+        int ships = 0;
+        for (int count : counts) ships += count;
+        int[] fleet = new int[ships];
+        int i = 0;
+        for (int length = counts.length - 1; length > 0; length--) {
+            for (int j = 0; j < counts[length]; j++) fleet[i++] = length;
+        }
+        return fleet;
+    }
+
+    /**
+     * Collect the sunk ships from the cells of the map. The ships don't touch each other, so every ship starts
+     * at a sunk cell which has no sunk cell above it or on its left.
+     *
+     * @param placements Filled with the placements of the sunk ships, the longest first. A placement is the index of
+     *                   the top-left cell of the ship multiplied by 2, plus the direction (0: horizontal, 1: vertical).
+     * @param lengths Filled with the lengths of the sunk ships in the same order.
+     * @return the number of the sunk ships, at most the length of the arrays.
+     */
+    public int getSunkShips(int[] placements, int[] lengths) {
+        int count = 0;
+        for (int cell = 0; cell < states.length && count < placements.length; cell++) {
+            if (states[cell] != SUNK) continue;
+            int row = cell / columns;
+            int column = cell % columns;
+            if (column > 0 && states[cell - 1] == SUNK || row > 0 && states[cell - columns] == SUNK) continue;
+            int direction = row + 1 < rows && states[cell + columns] == SUNK ? 1 : 0;
+            int step = direction == 0 ? 1 : columns;
+            int limit = direction == 0 ? columns - column : rows - row;
+            int length = 1;
+            while (length < limit && states[cell + length * step] == SUNK) length++;
+            // Keep the ships ordered by their lengths: move the shorter ones after the new one.
+            int i = count++;
+            for (; i > 0 && lengths[i - 1] < length; i--) {
+                placements[i] = placements[i - 1];
+                lengths[i] = lengths[i - 1];
+            }
+            placements[i] = (cell << 1) | direction;
+            lengths[i] = length;
+        }
+        return count;
+    }
+
+    /**
+     * Collect the cells which cannot have any of the remaining ships on them: the misses, the sunk ships and
+     * the cells next to them, and the cells diagonally from the hits.
+     *
+     * @param cells The bitset to fill with the cells.
+     */
+    public void getObstacles(long[] cells) {
+        Arrays.fill(cells, 0);
+        for (int cell = 0; cell < states.length; cell++) {
+            byte state = states[cell];
+            if (state == WATER || state == MISS || state == SUNK) BitSets.set(cells, cell);
+        }
+    }
+
+    /**
+     * Collect the cells which were hit but their ships have not sunk yet.
+     *
+     * @param cells The bitset to fill with the cells.
+     */
+    public void getHits(long[] cells) {
+        Arrays.fill(cells, 0);
+        for (int i = 0; i < hitCount; i++) BitSets.set(cells, hits[i]);
+    }
+
+    /**
+     * Score the unknown cells by the possible placements which go through the hits and choose the best of them.
+     *
+     * @param random Used for choosing between the equally good targets.
+     * @return the index of the chosen cell, or -1 if no placement goes through the hits.
+     */
+    private int chooseAroundHits(SplittableRandom random) {
+        int best = -1;
+        int bestScore = 0;
+        int ties = 0;
+        for (int i = 0; i < hitCount; i++) {
+            int hitRow = hits[i] / columns;
+            int hitColumn = hits[i] % columns;
+            for (int neighbour = 0; neighbour < 4; neighbour++) {
+                int r = hitRow + (neighbour == 0 ? -1 : neighbour == 1 ? 1 : 0);
+                int c = hitColumn + (neighbour == 2 ? -1 : neighbour == 3 ? 1 : 0);
+                neighbours[i * 4 + neighbour] = r < 0 || r >= rows || c < 0 || c >= columns ? -1 : r * columns + c;
+                scores[i * 4 + neighbour] = 0;
+            }
+        }
+        for (int i = 0; i < hitCount; i++) {
+            int hit = hits[i];
+            int hitRow = hit / columns;
+            int hitColumn = hit % columns;
+            for (int length = 2; length < remaining.length; length++) {
+                if (remaining[length] == 0) continue;
+                // Horizontal placements over the hit
+                for (int column = Math.max(hitColumn - length + 1, 0); column <= Math.min(hitColumn, columns - length); column++) {
+                    int start = hitRow * columns + column;
+                    if (isPossible(start, 1, length)) score(start, 1, length, remaining[length]);
+                }
+                // Vertical placements over the hit
+                for (int row = Math.max(hitRow - length + 1, 0); row <= Math.min(hitRow, rows - length); row++) {
+                    int start = row * columns + hitColumn;
+                    if (isPossible(start, columns, length)) score(start, columns, length, remaining[length]);
+                }
+            }
+        }
+        // Find the best cell next to the hits.
+        for (int i = 0; i < hitCount * 4; i++) {
+            int cell = neighbours[i];
+            if (cell == -1) continue;
+            if (scores[i] > bestScore) {
+                best = cell;
+                bestScore = scores[i];
+                ties = 1;
+            } else if (scores[i] == bestScore && bestScore > 0 && cell != best && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Add the weight of a placement to the scores of its unknown cells which are next to a hit.
+     *
+     * @param start The index of the top-left cell of the placement.
+     * @param step The difference between the indexes of two neighbouring cells of the placement.
+     * @param length The length of the placement.
+     * @param weight The weight to add.
+     */
+    private void score(int start, int step, int length, int weight) {
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            if (states[cell] != UNKNOWN) continue;
+            // A cell can be next to more than one hit.
+            for (int j = 0; j < hitCount * 4; j++) {
+                if (neighbours[j] == cell) scores[j] += weight;
+            }
+        }
+    }
+
+    /**
+     * Register that a ship has sunk at the given cell. The ship consists of the hits in line with the cell.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     */
+    private void sink(int row, int column) {
+        // Find the ends of the ship, first horizontally then vertically.
+        int first = column;
+        int last = column;
+        while (first > 0 && states[row * columns + first - 1] == HIT) first--;
+        while (last < columns - 1 && states[row * columns + last + 1] == HIT) last++;
+        int start;
+        int step;
+        int length;
+        if (first != last) {
+            start = row * columns + first;
+            step = 1;
+            length = last - first + 1;
+        } else {
+            first = row;
+            last = row;
+            while (first > 0 && states[(first - 1) * columns + column] == HIT) first--;
+            while (last < rows - 1 && states[(last + 1) * columns + column] == HIT) last++;
+            start = first * columns + column;
+            step = columns;
+            length = last - first + 1;
+        }
+
+        // The ship is not among the remaining ones anymore.
+        if (length < remaining.length && remaining[length] > 0) remaining[length]--;
+
+        // The ship and the cells around it cannot have any other ship. Only the placements through them change.
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            removeHit(cell);
+            block(cell, SUNK);
+        }
+        int startRow = start / columns;
+        int startColumn = start % columns;
+        int endRow = step == 1 ? startRow : startRow + length - 1;
+        int endColumn = step == 1 ? startColumn + length - 1 : startColumn;
+        for (int r = Math.max(startRow - 1, 0); r <= Math.min(endRow + 1, rows - 1); r++) {
+            for (int c = Math.max(startColumn - 1, 0); c <= Math.min(endColumn + 1, columns - 1); c++) {
+                block(r * columns + c, WATER);
+            }
+        }
+    }
+
+    /**
+     * Remove a cell from the list of the hits which have not sunk yet.
+     *
+     * @param cell The index of the cell.
+     */
+    private void removeHit(int cell) {
+        for (int i = 0; i < hitCount; i++) {
+            if (hits[i] == cell) {
+                hits[i] = hits[--hitCount];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Mark a cell as one which cannot have any of the remaining ships on it,
+     * and remove the placements going through it from the density.
+     *
+     * @param cell The index of the cell.
+     * @param state The new state of the cell. (WATER, MISS or SUNK)
+     */
+    private void block(int cell, byte state) {
+        if (states[cell] == WATER || states[cell] == MISS || states[cell] == SUNK) {
+            // The placements through the cell are already removed, only a fire can change the state.
+            if (state != WATER) {
+                states[cell] = state;
+                buckets.decreaseTo(cell, FIRED_BUCKET);
+            }
+            return;
+        }
+        int row = cell / columns;
+        int column = cell % columns;
+        for (int length = 1; length < weights.length; length++) {
+            if (weights[length] == 0) continue;
+            for (int c = Math.max(column - length + 1, 0); c <= Math.min(column, columns - length); c++) {
+                int start = row * columns + c;
+                if (isPossible(start, 1, length)) removeFromCells(start, 1, length, weights[length]);
+            }
+            // A ship with the length of 1 is counted only once.
+            if (length == 1) continue;
+            for (int r = Math.max(row - length + 1, 0); r <= Math.min(row, rows - length); r++) {
+                int start = r * columns + column;
+                if (isPossible(start, columns, length)) removeFromCells(start, columns, length, weights[length]);
+            }
+        }
+        states[cell] = state;
+        buckets.decreaseTo(cell, state == WATER ? WATER_BUCKET : FIRED_BUCKET);
+    }
+
+    /**
+     * Check if a remaining ship could be placed on the given cells with what is known about the battlefield.
+     *
+     * @param start The index of the top-left cell of the placement.
+     * @param step The difference between the indexes of two neighbouring cells of the placement.
+     * @param length The length of the placement.
+     * @return true if none of the cells are known to be empty.
+     */
+    private boolean isPossible(int start, int step, int length) {
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            byte state = states[cell];
+            if (state != UNKNOWN && state != HIT) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove a placement from the density of its unknown cells. The density of the other cells is not kept.
+     *
+     * @param start The index of the top-left cell of the placement.
+     * @param step The difference between the indexes of two neighbouring cells of the placement.
+     * @param length The length of the placement.
+     * @param weight The weight of the placement.
+     */
+    private void removeFromCells(int start, int step, int length, int weight) {
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            if (states[cell] != UNKNOWN) continue;
+            for (int j = 0; j < weight; j++) buckets.decrement(cell);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The text input and output through which a user communicates with the program: the console,
+ * or a connection to the game server. The output is flushed before waiting for an input,
+ * so the user always sees the question before answering it.
+ *
+ * <p>A batch terminal reads the commands from a script instead of a user. Nobody waits for its questions,
+ * so its output is only flushed when its buffer is full, and the game doesn't redraw the battlefields for it.</p>
+ */
+public class Terminal implements Closeable {
+
+    /**
+     * The input from the user.
+     */
+    private final InputTokenizer in;
+
+    /**
+     * The output to the user.
+     */
+    private final PrintStream out;
+
+    /**
+     * False if the input is a script. (See batch())
+     */
+    private final boolean interactive;
+
+    /**
+     * Create a terminal over a pair of streams, e.g. a network connection. The text is encoded in UTF-8.
+     *
+     * @param input The stream of the input from the user.
+     * @param output The stream of the output to the user. It's buffered until an input is read.
+     */
+    public Terminal(InputStream input, OutputStream output) {
+        this(new InputTokenizer(new InputStreamReader(input, StandardCharsets.UTF_8)),
+                new PrintStream(new BufferedOutputStream(output), false, StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Create a terminal from an input and an output stream.
+     *
+     * @param in The input from the user.
+     * @param out The output to the user.
+     * @param interactive False if the input is a script.
+     */
+    private Terminal(InputTokenizer in, PrintStream out, boolean interactive) {
+        this.in = in;
+        this.out = out;
+        this.interactive = interactive;
+    }
+
+    /**
+     * Create a terminal over the standard input and output of the program.
+     *
+     * @return the terminal of the console.
+     */
+    public static Terminal console() {
+        return new Terminal(new InputTokenizer(new InputStreamReader(System.in)), System.out, true);
+    }
+
+    /**
+     * Create a terminal which executes a script of commands, e.g. a file or a piped stream.
+     * The commands are the same as the answers of a user, one per line. The text is encoded in UTF-8.
+     *
+     * @param script The stream of the commands.
+     * @param output The stream of the output. It's buffered until the buffer is full or the terminal is flushed.
+     * @return the batch terminal.
+     */
+    public static Terminal batch(InputStream script, OutputStream output) {
+        return new Terminal(new InputTokenizer(new InputStreamReader(script, StandardCharsets.UTF_8)),
+                new PrintStream(new BufferedOutputStream(output, 1 << 16), false, StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Return false if the input is a script, so there's no user to show the progress to.
+     *
+     * @return true if a user communicates through the terminal.
+     */
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    /**
+     * Read the next line of the input.
+     *
+     * @return the line without the line separator.
+     * @throws java.util.NoSuchElementException if the input is closed.
+     */
+    public String nextLine() {
+        if (interactive) out.flush();
+        return in.nextLine();
+    }
+
+    /**
+     * Return true if the next word of the input is a number. It waits for the input.
+     *
+     * @return true if the next word is a number.
+     */
+    public boolean hasNextInt() {
+        if (interactive) out.flush();
+        return in.hasNextInt();
+    }
+
+    /**
+     * Read the next word of the input as a number.
+     *
+     * @return the number.
+     * @throws java.util.InputMismatchException if the next word is not a number.
+     * @throws java.util.NoSuchElementException if the input is closed.
+     */
+    public int nextInt() {
+        if (interactive) out.flush();
+        return in.nextInt();
+    }
+
+    /**
+     * Write a text to the output.
+     *
+     * @param text The text to write.
+     */
+    public void print(String text) {
+        out.print(text);
+    }
+
+    /**
+     * Write a line to the output.
+     *
+     * @param line The line to write without the line separator.
+     */
+    public void println(String line) {
+        out.println(line);
+    }
+
+    /**
+     * Write an empty line to the output.
+     */
+    public void println() {
+        out.println();
+    }
+
+    /**
+     * Write a formatted text to the output.
+     *
+     * @param format The format of the text. (See String.format())
+     * @param args The arguments of the format.
+     */
+    public void printf(String format, Object... args) {
+        out.printf(format, args);
+    }
+
+    /**
+     * Return the output stream, e.g. for drawing the battlefields.
+     *
+     * @return the output to the user.
+     */
+    public PrintStream getOut() {
+        return out;
+    }
+
+    /**
+     * Write the buffered output.
+     */
+    public void flush() {
+        out.flush();
+    }
+
+    /**
+     * Write the buffered output, then close the input and the output.
+     */
+    @Override
+    public void close() {
+        out.flush();
+        in.close();
+        out.close();
+    }
+}